@@ -0,0 +1,17 @@
+// src/main/java/com/contractanalysis/config/SessionConfig.java
+package com.contractanalysis.config;
+
+import com.contractanalysis.security.CompactSessionSerializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@Configuration
+public class SessionConfig {
+
+    // Picked up by Spring Session by bean name for all session attributes
+    @Bean
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
+        return new CompactSessionSerializer();
+    }
+}
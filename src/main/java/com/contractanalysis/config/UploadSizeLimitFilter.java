@@ -0,0 +1,73 @@
+// src/main/java/com/contractanalysis/config/UploadSizeLimitFilter.java
+package com.contractanalysis.config;
+
+import com.contractanalysis.security.UserPrincipal;
+import com.contractanalysis.service.UploadSpoolService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Rejects contract uploads over the user's tier limit from the Content-Length header,
+// before the container reads the body. Runs after the security filter chain (so the
+// principal is known) and relies on spring.servlet.multipart.resolve-lazily so nothing
+// has parsed the multipart body yet.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class UploadSizeLimitFilter extends OncePerRequestFilter {
+
+    private static final String UPLOAD_PATH = "/api/contracts";
+    // Room for the boundaries, part headers and the small text fields around the file
+    private static final long MULTIPART_OVERHEAD_BYTES = 64 * 1024;
+
+    private final UploadSpoolService uploadSpoolService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !UPLOAD_PATH.equals(request.getRequestURI())
+                || request.getContentType() == null
+                || !request.getContentType().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        // Chunked requests have no Content-Length; the parsed part size is checked in the controller
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            String tier = principal.isPremium() ? "premium" : "free";
+            long maxUploadBytes = uploadSpoolService.maxUploadBytes(tier);
+
+            if (request.getContentLengthLong() > maxUploadBytes + MULTIPART_OVERHEAD_BYTES) {
+                log.info("Rejected {} byte upload over the {} tier limit", request.getContentLengthLong(), tier);
+                Map<String, String> body = new HashMap<>();
+                body.put("error", "File exceeds the " + maxUploadBytes + " byte limit for the " + tier + " tier");
+                response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.setHeader("Connection", "close");
+                objectMapper.writeValue(response.getOutputStream(), body);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
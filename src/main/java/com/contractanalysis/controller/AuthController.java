@@ -2,6 +2,8 @@
 package com.contractanalysis.controller;
 
 import com.contractanalysis.security.UserPrincipal;
+import com.contractanalysis.service.UserCacheService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,16 +15,21 @@ import java.util.Map;
 
 @RestController
 @RequestMapping("/auth")
+@RequiredArgsConstructor
 public class AuthController {
 
+    private final UserCacheService userCacheService;
+
     @GetMapping("/current-user")
     public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal UserPrincipal userPrincipal) {
         if (userPrincipal != null) {
-            return ResponseEntity.ok(userPrincipal.getUser());
+            return userCacheService.getUser(userPrincipal.getUserId())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
         } else {
             Map<String, String> response = new HashMap<>();
             response.put("error", "Unauthorized");
             return ResponseEntity.status(401).body(response);
         }
     }
-}
\ No newline at end of file
+}
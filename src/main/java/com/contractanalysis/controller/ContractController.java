@@ -4,20 +4,34 @@ import com.contractanalysis.model.ContractAnalysis;
 import com.contractanalysis.repository.ContractRepository;
 import com.contractanalysis.security.UserPrincipal;
 import com.contractanalysis.service.AiService;
-import com.contractanalysis.service.RedisService;
+import com.contractanalysis.service.AnalysisTracing;
+import com.contractanalysis.service.ContractExportService;
+import com.contractanalysis.service.ContractRevisionService;
+import com.contractanalysis.service.DashboardStatsService;
+import com.contractanalysis.service.RetentionService;
+import com.contractanalysis.service.UploadSpoolService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.Duration;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/contracts")
@@ -25,43 +39,180 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class ContractController {
 
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+    // Clients may keep responses but must revalidate them with If-None-Match
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final ContractRepository contractRepository;
     private final AiService aiService;
-    private final RedisService redisService;
+    private final UploadSpoolService uploadSpoolService;
+    private final ContractRevisionService contractRevisionService;
+    private final ContractExportService contractExportService;
+    private final DashboardStatsService dashboardStatsService;
+    private final RetentionService retentionService;
+    private final AnalysisTracing analysisTracing;
 
     @GetMapping
-    public ResponseEntity<List<ContractAnalysis>> getAllContracts(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+    public ResponseEntity<List<ContractAnalysis>> getAllContracts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        if (userPrincipal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        String userId = userPrincipal.getUserId();
+        
+        // The list ETag covers every id and modification counter, so adding, changing or
+        // deleting any analysis changes it; only those two fields are read to check it
+        StringBuilder versions = new StringBuilder();
+        for (ContractAnalysis version : retentionService.findVersionsForUser(userId)) {
+            versions.append(version.getId()).append(':').append(version.getModificationCount()).append(';');
+        }
+        String eTag = "\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (eTagMatches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(REVALIDATE).build();
+        }
+        
+        // Archived analyses are listed by summary; GET /{id} returns the full document
+        List<ContractAnalysis> contracts = retentionService.findAllForUser(userId);
+        
+        return ResponseEntity.ok().eTag(eTag).cacheControl(REVALIDATE).body(contracts);
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<?> exportContracts(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "fields", required = false) List<String> fields,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+        
+        if (userPrincipal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        ContractExportService.Format exportFormat;
+        List<String> exportFields;
+        try {
+            exportFormat = ContractExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            exportFields = contractExportService.resolveFields(exportFormat, fields);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Invalid export request: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        if (cursor != null && !cursor.isBlank() && !ObjectId.isValid(cursor)) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Invalid cursor");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        String userId = userPrincipal.getUserId();
+        String extension = exportFormat == ContractExportService.Format.CSV ? "csv" : "ndjson";
+        
+        // Gzip-compressed, written record by record as the Mongo cursor advances.
+        // Clients resume an interrupted export by passing the last exported id as cursor.
+        StreamingResponseBody body = outputStream -> {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(outputStream, 64 * 1024)) {
+                contractExportService.export(userId, exportFormat, exportFields, cursor, gzip);
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"contracts." + extension + ".gz\"")
+                .body(body);
+    }
+    
+    @GetMapping("/dashboard")
+    public ResponseEntity<?> getDashboard(@AuthenticationPrincipal UserPrincipal userPrincipal) {
         if (userPrincipal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        String userId = userPrincipal.getUser().getId();
-        List<ContractAnalysis> contracts = contractRepository.findByUserIdOrderByCreatedAtDesc(userId);
+        try {
+            return ResponseEntity.ok(dashboardStatsService.getDashboard(userPrincipal.getUserId()));
+        } catch (IllegalStateException e) {
+            // First build of the summary is waiting on a concurrent update
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Dashboard is being updated, please retry");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+    }
+    
+    @PostMapping("/dashboard/rebuild")
+    public ResponseEntity<?> rebuildDashboard(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+        if (userPrincipal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
         
-        return ResponseEntity.ok(contracts);
+        String userId = userPrincipal.getUserId();
+        try {
+            dashboardStatsService.rebuild(userId);
+        } catch (IllegalStateException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Dashboard is already being updated");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        return ResponseEntity.ok(dashboardStatsService.getDashboard(userId));
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<ContractAnalysis> getContract(
             @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         
         if (userPrincipal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        String userId = userPrincipal.getUser().getId();
-        Optional<ContractAnalysis> contractOpt = contractRepository.findByIdAndUserId(id, userId);
+        String userId = userPrincipal.getUserId();
+        
+        // Answer conditional requests from the modification counter alone
+        if (ifNoneMatch != null) {
+            Optional<ContractAnalysis> versionOpt = contractRepository.findModificationCountByIdAndUserId(id, userId);
+            if (versionOpt.isPresent() && eTagMatches(ifNoneMatch, eTagOf(versionOpt.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTagOf(versionOpt.get()))
+                        .cacheControl(REVALIDATE)
+                        .build();
+            }
+        }
+        
+        Optional<ContractAnalysis> contractOpt = retentionService.findForUser(id, userId);
         
         return contractOpt
-                .map(ResponseEntity::ok)
+                .map(contract -> ResponseEntity.ok().eTag(eTagOf(contract)).cacheControl(REVALIDATE).body(contract))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
+    private String eTagOf(ContractAnalysis analysis) {
+        Long count = analysis.getModificationCount();
+        return "\"" + analysis.getId() + "-" + (count != null ? count : 0) + "\"";
+    }
+    
+    private boolean eTagMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> analyzeContract(
             @RequestParam(value = "file", required = false) MultipartFile file,
             @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "previousVersionId", required = false) String previousVersionId,
             @AuthenticationPrincipal UserPrincipal userPrincipal) {
         
         if (userPrincipal == null) {
@@ -69,17 +220,47 @@ public class ContractController {
         }
         
         try {
-            String userId = userPrincipal.getUser().getId();
+            String userId = userPrincipal.getUserId();
+            
+            // A revision must point at one of the user's own analyses
+            ContractAnalysis previous = null;
+            if (previousVersionId != null && !previousVersionId.isBlank()) {
+                Optional<ContractAnalysis> previousOpt = retentionService.findForUser(previousVersionId, userId);
+                if (previousOpt.isEmpty()) {
+                    Map<String, String> response = new HashMap<>();
+                    response.put("error", "Previous version not found");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                }
+                previous = previousOpt.get();
+            }
+            
             String contractText;
+            String contentHash = null;
+            
+            // Determine user tier based on premium status
+            String tier = userPrincipal.isPremium() ? "premium" : "free";
             
             // Get contract text from either file or direct text input
             if (file != null && !file.isEmpty()) {
-                // Store file in Redis temporarily
-                String fileKey = "file:" + UUID.randomUUID().toString();
-                redisService.set(fileKey, file.getBytes(), Duration.ofHours(1));
+                // UploadSizeLimitFilter rejects oversized bodies up front; chunked uploads
+                // carry no Content-Length, so the parsed part is checked again here
+                long maxUploadBytes = uploadSpoolService.maxUploadBytes(tier);
+                if (file.getSize() > maxUploadBytes) {
+                    Map<String, String> response = new HashMap<>();
+                    response.put("error", "File exceeds the " + maxUploadBytes + " byte limit for the " + tier + " tier");
+                    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+                }
                 
-                // Extract text from PDF
-                contractText = aiService.extractTextFromPDF(fileKey);
+                // Spool the upload to local disk and extract text from the spooled file
+                try (UploadSpoolService.SpooledUpload upload = analysisTracing.inSpanChecked("contract.upload",
+                             Map.of("tier", tier, "upload.size", file.getSize()),
+                             () -> uploadSpoolService.spool(file));
+                     FileChannel channel = upload.openChannel()) {
+                    contentHash = upload.contentHash();
+                    contractText = analysisTracing.inSpanChecked("contract.extract",
+                            Map.of("upload.size", upload.size()),
+                            () -> aiService.extractTextFromPDF(channel));
+                }
             } else if (text != null && !text.isBlank()) {
                 contractText = text;
             } else {
@@ -88,36 +269,41 @@ public class ContractController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // Detect contract type using AI
-            String contractType = aiService.detectContractType(contractText);
-            
-            // Determine user tier based on premium status
-            String tier = userPrincipal.getUser().isPremium() ? "premium" : "free";
+            // Detect contract type using AI (a revision keeps the type of its predecessor)
+            String contractType = previous != null && previous.getContractType() != null
+                    ? previous.getContractType()
+                    : aiService.detectContractType(contractText);
             
             // Create initial contract analysis record
+            LocalDateTime createdAt = LocalDateTime.now();
             ContractAnalysis initialAnalysis = ContractAnalysis.builder()
                     .userId(userId)
                     .contractText(contractText)
+                    .contentHash(contentHash)
                     .contractType(contractType)
-                    .createdAt(LocalDateTime.now())
-                    .version(1)
+                    .createdAt(createdAt)
+                    .expirationDate(retentionService.expirationFor(tier, createdAt))
+                    .tier(tier)
+                    .version(previous != null && previous.getVersion() != null ? previous.getVersion() + 1 : 1)
+                    .previousVersionId(previous != null ? previous.getId() : null)
                     .language("en")
-                    .aiModel("gemini-1.5-pro")
                     .build();
             
             ContractAnalysis savedAnalysis = contractRepository.save(initialAnalysis);
             
             // Start async analysis with AI
             CompletableFuture<Map<String, Object>> analysisFuture = 
-                    aiService.analyzeContractWithAI(contractText, tier, contractType);
+                    startAnalysis(previous, contractText, contentHash, tier, contractType);
             
-            analysisFuture.thenAccept(analysisResults -> {
-                try {
-                    updateAnalysisWithResults(savedAnalysis.getId(), analysisResults);
-                } catch (Exception e) {
-                    log.error("Error updating analysis with results", e);
-                }
-            });
+            // The result write continues the request's trace on whichever thread completes the analysis
+            analysisFuture.thenAccept(analysisTracing.propagate(analysisResults -> 
+                    analysisTracing.runInSpan("contract.save_results", Map.of("analysis.id", savedAnalysis.getId()), () -> {
+                        try {
+                            updateAnalysisWithResults(savedAnalysis.getId(), analysisResults);
+                        } catch (Exception e) {
+                            log.error("Error updating analysis with results", e);
+                        }
+                    })));
             
             // Return initial response to client
             Map<String, Object> response = new HashMap<>();
@@ -135,6 +321,33 @@ public class ContractController {
         }
     }
     
+    // Revisions only send changed clauses to the model and merge the delta into the
+    // previous results; anything else (or a failed delta) gets a full analysis
+    private CompletableFuture<Map<String, Object>> startAnalysis(
+            ContractAnalysis previous, String contractText, String contentHash, String tier, String contractType) {
+        if (previous == null) {
+            return aiService.analyzeContractWithAI(contractText, contentHash, tier, contractType);
+        }
+        
+        ContractRevisionService.ClauseDiff diff = contractRevisionService.diff(previous.getContractText(), contractText);
+        if (!contractRevisionService.canAnalyzeIncrementally(previous, diff, tier)) {
+            return aiService.analyzeContractWithAI(contractText, contentHash, tier, contractType);
+        }
+        
+        if (diff.isEmpty()) {
+            return CompletableFuture.completedFuture(contractRevisionService.merge(previous, Map.of()));
+        }
+        
+        // The fallback runs on the AI executor after this span's scope has closed, so it
+        // takes the span captured here as its parent
+        Supplier<CompletableFuture<Map<String, Object>>> fullAnalysis = analysisTracing.propagate(
+                () -> aiService.analyzeContractWithAI(contractText, contentHash, tier, contractType));
+        return aiService.analyzeContractChanges(previous, diff, tier, contractType)
+                .thenCompose(delta -> delta != null
+                        ? CompletableFuture.completedFuture(contractRevisionService.merge(previous, delta))
+                        : fullAnalysis.get());
+    }
+    
     @PutMapping("/{id}/feedback")
     public ResponseEntity<?> updateFeedback(
             @PathVariable String id,
@@ -145,16 +358,26 @@ public class ContractController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        String userId = userPrincipal.getUser().getId();
-        Optional<ContractAnalysis> contractOpt = contractRepository.findByIdAndUserId(id, userId);
+        String userId = userPrincipal.getUserId();
         
-        if (contractOpt.isPresent()) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<ContractAnalysis> contractOpt = retentionService.findForUser(id, userId);
+            
+            if (contractOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
             ContractAnalysis contract = contractOpt.get();
             contract.setUserFeedback(feedback);
-            contractRepository.save(contract);
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.notFound().build();
+            try {
+                retentionService.save(contract);
+                return ResponseEntity.ok().build();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt == MAX_SAVE_ATTEMPTS) {
+                    log.warn("Giving up on feedback for analysis {} after {} concurrent updates", id, attempt);
+                    return ResponseEntity.status(HttpStatus.CONFLICT).build();
+                }
+            }
         }
     }
     
@@ -167,11 +390,11 @@ public class ContractController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        String userId = userPrincipal.getUser().getId();
-        Optional<ContractAnalysis> contractOpt = contractRepository.findByIdAndUserId(id, userId);
+        String userId = userPrincipal.getUserId();
+        Optional<ContractAnalysis> contractOpt = retentionService.findForUser(id, userId);
         
         if (contractOpt.isPresent()) {
-            contractRepository.deleteById(id);
+            dashboardStatsService.recordDeleted(contractOpt.get(), () -> retentionService.delete(id));
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -187,8 +410,8 @@ public class ContractController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
-        String userId = userPrincipal.getUser().getId();
-        Optional<ContractAnalysis> contractOpt = contractRepository.findByIdAndUserId(id, userId);
+        String userId = userPrincipal.getUserId();
+        Optional<ContractAnalysis> contractOpt = retentionService.findForUser(id, userId);
         
         if (contractOpt.isPresent()) {
             ContractAnalysis contract = contractOpt.get();
@@ -212,117 +435,138 @@ public class ContractController {
         }
     }
     
-    @SuppressWarnings("unchecked")
+    // Saves are version-checked, so a concurrent feedback update makes the save fail; the
+    // results are then applied again to a fresh copy
     private void updateAnalysisWithResults(String analysisId, Map<String, Object> results) {
-        Optional<ContractAnalysis> analysisOpt = contractRepository.findById(analysisId);
-        
-        if (analysisOpt.isPresent()) {
-            ContractAnalysis analysis = analysisOpt.get();
+        for (int attempt = 1; ; attempt++) {
+            Optional<ContractAnalysis> analysisOpt = contractRepository.findById(analysisId);
             
-            // Update basic fields
-            if (results.containsKey("summary")) {
-                analysis.setSummary((String) results.get("summary"));
+            if (analysisOpt.isEmpty()) {
+                log.error("Analysis not found for ID: {}", analysisId);
+                return;
             }
             
-            if (results.containsKey("overallScore")) {
-                Object score = results.get("overallScore");
-                if (score instanceof Integer) {
-                    analysis.setOverallScore((Integer) score);
-                } else if (score instanceof String) {
-                    try {
-                        analysis.setOverallScore(Integer.parseInt((String) score));
-                    } catch (NumberFormatException e) {
-                        log.error("Error parsing overall score", e);
-                    }
-                }
-            }
-            
-            // Update risks
-            if (results.containsKey("risks") && results.get("risks") instanceof List) {
-                List<Map<String, String>> risksData = (List<Map<String, String>>) results.get("risks");
-                List<ContractAnalysis.Risk> risks = new ArrayList<>();
-                
-                for (Map<String, String> riskData : risksData) {
-                    ContractAnalysis.Risk risk = new ContractAnalysis.Risk(
-                            riskData.get("risk"),
-                            riskData.get("explanation"),
-                            riskData.get("severity")
-                    );
-                    risks.add(risk);
+            ContractAnalysis analysis = analysisOpt.get();
+            applyResults(analysis, results);
+            try {
+                // Save the updated analysis together with its dashboard counters
+                dashboardStatsService.recordCompleted(analysis, () -> contractRepository.save(analysis));
+                log.info("Analysis updated successfully: {}", analysisId);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt == MAX_SAVE_ATTEMPTS) {
+                    throw e;
                 }
-                
-                analysis.setRisks(risks);
+                log.info("Analysis {} changed concurrently, applying results again", analysisId);
             }
-            
-            // Update opportunities
-            if (results.containsKey("opportunities") && results.get("opportunities") instanceof List) {
-                List<Map<String, String>> oppsData = (List<Map<String, String>>) results.get("opportunities");
-                List<ContractAnalysis.Opportunity> opportunities = new ArrayList<>();
-                
-                for (Map<String, String> oppData : oppsData) {
-                    ContractAnalysis.Opportunity opportunity = new ContractAnalysis.Opportunity(
-                            oppData.get("opportunity"),
-                            oppData.get("explanation"),
-                            oppData.get("impact")
-                    );
-                    opportunities.add(opportunity);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void applyResults(ContractAnalysis analysis, Map<String, Object> results) {
+        // Update basic fields
+        analysis.setAnalysisFailed(Boolean.TRUE.equals(results.get("analysisFailed")));
+        
+        if (results.containsKey("aiModel")) {
+            analysis.setAiModel((String) results.get("aiModel"));
+        }
+        
+        if (results.containsKey("summary")) {
+            analysis.setSummary((String) results.get("summary"));
+        }
+        
+        if (results.containsKey("overallScore")) {
+            Object score = results.get("overallScore");
+            if (score instanceof Integer) {
+                analysis.setOverallScore((Integer) score);
+            } else if (score instanceof String) {
+                try {
+                    analysis.setOverallScore(Integer.parseInt((String) score));
+                } catch (NumberFormatException e) {
+                    log.error("Error parsing overall score", e);
                 }
-                
-                analysis.setOpportunities(opportunities);
-            }
-            
-            // Premium-specific fields
-            if (results.containsKey("recommendations") && results.get("recommendations") instanceof List) {
-                analysis.setRecommendations((List<String>) results.get("recommendations"));
-            }
-            
-            if (results.containsKey("keyClauses") && results.get("keyClauses") instanceof List) {
-                analysis.setKeyClauses((List<String>) results.get("keyClauses"));
-            }
-            
-            if (results.containsKey("legalCompliance")) {
-                analysis.setLegalCompliance((String) results.get("legalCompliance"));
-            }
-            
-            if (results.containsKey("negotiationPoints") && results.get("negotiationPoints") instanceof List) {
-                analysis.setNegotiationPoints((List<String>) results.get("negotiationPoints"));
             }
+        }
+        
+        // Update risks
+        if (results.containsKey("risks") && results.get("risks") instanceof List) {
+            List<Map<String, String>> risksData = (List<Map<String, String>>) results.get("risks");
+            List<ContractAnalysis.Risk> risks = new ArrayList<>();
             
-            if (results.containsKey("contractDuration")) {
-                analysis.setContractDuration((String) results.get("contractDuration"));
+            for (Map<String, String> riskData : risksData) {
+                ContractAnalysis.Risk risk = new ContractAnalysis.Risk(
+                        riskData.get("risk"),
+                        riskData.get("explanation"),
+                        riskData.get("severity")
+                );
+                risks.add(risk);
             }
             
-            if (results.containsKey("terminationConditions")) {
-                analysis.setTerminationConditions((String) results.get("terminationConditions"));
-            }
+            analysis.setRisks(risks);
+        }
+        
+        // Update opportunities
+        if (results.containsKey("opportunities") && results.get("opportunities") instanceof List) {
+            List<Map<String, String>> oppsData = (List<Map<String, String>>) results.get("opportunities");
+            List<ContractAnalysis.Opportunity> opportunities = new ArrayList<>();
             
-            if (results.containsKey("performanceMetrics") && results.get("performanceMetrics") instanceof List) {
-                analysis.setPerformanceMetrics((List<String>) results.get("performanceMetrics"));
+            for (Map<String, String> oppData : oppsData) {
+                ContractAnalysis.Opportunity opportunity = new ContractAnalysis.Opportunity(
+                        oppData.get("opportunity"),
+                        oppData.get("explanation"),
+                        oppData.get("impact")
+                );
+                opportunities.add(opportunity);
             }
             
-            if (results.containsKey("intellectualPropertyClauses")) {
-                analysis.setIntellectualPropertyClauses(results.get("intellectualPropertyClauses"));
-            }
+            analysis.setOpportunities(opportunities);
+        }
+        
+        // Premium-specific fields
+        if (results.containsKey("recommendations") && results.get("recommendations") instanceof List) {
+            analysis.setRecommendations((List<String>) results.get("recommendations"));
+        }
+        
+        if (results.containsKey("keyClauses") && results.get("keyClauses") instanceof List) {
+            analysis.setKeyClauses((List<String>) results.get("keyClauses"));
+        }
+        
+        if (results.containsKey("legalCompliance")) {
+            analysis.setLegalCompliance((String) results.get("legalCompliance"));
+        }
+        
+        if (results.containsKey("negotiationPoints") && results.get("negotiationPoints") instanceof List) {
+            analysis.setNegotiationPoints((List<String>) results.get("negotiationPoints"));
+        }
+        
+        if (results.containsKey("contractDuration")) {
+            analysis.setContractDuration((String) results.get("contractDuration"));
+        }
+        
+        if (results.containsKey("terminationConditions")) {
+            analysis.setTerminationConditions((String) results.get("terminationConditions"));
+        }
+        
+        if (results.containsKey("performanceMetrics") && results.get("performanceMetrics") instanceof List) {
+            analysis.setPerformanceMetrics((List<String>) results.get("performanceMetrics"));
+        }
+        
+        if (results.containsKey("intellectualPropertyClauses")) {
+            analysis.setIntellectualPropertyClauses(results.get("intellectualPropertyClauses"));
+        }
+        
+        // Financial terms
+        if (results.containsKey("financialTerms") && results.get("financialTerms") instanceof Map) {
+            Map<String, Object> financialData = (Map<String, Object>) results.get("financialTerms");
+            String description = (String) financialData.get("description");
+            List<String> details = (List<String>) financialData.get("details");
             
-            // Financial terms
-            if (results.containsKey("financialTerms") && results.get("financialTerms") instanceof Map) {
-                Map<String, Object> financialData = (Map<String, Object>) results.get("financialTerms");
-                String description = (String) financialData.get("description");
-                List<String> details = (List<String>) financialData.get("details");
-                
-                ContractAnalysis.FinancialTerms financialTerms = new ContractAnalysis.FinancialTerms(
-                        description,
-                        details
-                );
-                
-                analysis.setFinancialTerms(financialTerms);
-            }
+            ContractAnalysis.FinancialTerms financialTerms = new ContractAnalysis.FinancialTerms(
+                    description,
+                    details
+            );
             
-            // Save the updated analysis
-            contractRepository.save(analysis);
-            log.info("Analysis updated successfully: {}", analysisId);
-        } else {
-            log.error("Analysis not found for ID: {}", analysisId);
+            analysis.setFinancialTerms(financialTerms);
         }
     }
 }
\ No newline at end of file
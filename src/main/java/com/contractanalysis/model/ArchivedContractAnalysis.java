@@ -0,0 +1,47 @@
+// src/main/java/com/contractanalysis/model/ArchivedContractAnalysis.java
+package com.contractanalysis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+// Cold copy of a ContractAnalysis: the full document as gzip-compressed JSON,
+// plus the few fields needed to list, count and expire it without inflating it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "contract_analysis_archive")
+public class ArchivedContractAnalysis {
+    @Id
+    private String id; // same id as the original analysis
+
+    @Indexed
+    private String userId;
+
+    private LocalDateTime createdAt;
+    private String summary;
+    private String contractType;
+    private Integer overallScore;
+    private List<String> riskSeverities; // severity of each risk, for the dashboard rebuild
+    private Boolean analysisFailed; // failed analyses are left out of the dashboard
+    private Integer version;
+    private Long modificationCount;
+
+    // RetentionService expires analyses itself so the dashboard counters follow;
+    // the TTL index only removes what it missed (e.g. while no node was running)
+    @Indexed(name = "archive_expiration_ttl", expireAfter = "1d")
+    private Date expirationDate;
+
+    private Instant archivedAt;
+    private byte[] payload;
+}
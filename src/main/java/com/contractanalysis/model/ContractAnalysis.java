@@ -1,12 +1,18 @@
 // src/main/java/com/contractanalysis/model/ContractAnalysis.java
 package com.contractanalysis.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -19,12 +25,17 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "contract_analysis")
-public class ContractAnalysis {
+@CompoundIndexes({
+    @CompoundIndex(name = "user_created", def = "{'userId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "user_id", def = "{'userId': 1, '_id': 1}")
+})
+public class ContractAnalysis implements Persistable<String> {
     @Id
     private String id;
     
     private String userId;
     private String contractText;
+    private String contentHash; // sha256 of the uploaded file, null for pasted text
     private List<Risk> risks;
     private List<Opportunity> opportunities;
     private String summary;
@@ -43,14 +54,33 @@ public class ContractAnalysis {
     private LocalDateTime createdAt;
     
     private Integer version;
+    // Optimistic lock: every save bumps it (a stale save fails), and it doubles as the ETag.
+    // Documents written before it existed (or by an older node mid-deploy) have none; see isNew.
+    @Version
+    private Long modificationCount;
+    private String previousVersionId; // analysis of the version this one revises
     private UserFeedback userFeedback;
     private Map<String, String> customFields;
+    // Removed by RetentionService once passed (null keeps it forever); Mongo's TTL
+    // monitor is the backstop a day later
+    @Indexed(name = "expiration_ttl", expireAfter = "1d")
     private Date expirationDate;
     private String language;
     private String aiModel;
+    private String tier; // free or premium: which result shape the analysis was run for
+    private Boolean analysisFailed; // results are the error placeholder, not a real analysis
     private String contractType;
     private FinancialTerms financialTerms;
     
+    // New means never stored. By default Spring Data would also treat a null version as new
+    // and insert, failing with a duplicate key on analyses that have no modificationCount yet;
+    // this way they are updated (matching the missing version) and start counting at 0.
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return id == null;
+    }
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
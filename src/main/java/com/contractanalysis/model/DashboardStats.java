@@ -0,0 +1,32 @@
+// src/main/java/com/contractanalysis/model/DashboardStats.java
+package com.contractanalysis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Per-user dashboard counters, kept current with $inc updates as analyses complete, are deleted or expire
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "dashboard_stats")
+public class DashboardStats {
+    @Id
+    private String userId;
+
+    private long totalCount;
+    private Map<String, Long> countByType;
+    private Map<String, Long> riskSeverity; // low, medium, high
+    private long scoreSum;
+    private long scoredCount;
+    private Map<String, Long> monthlyCount; // yyyy-MM -> analyses created that month
+
+    private Instant rebuiltAt;
+}
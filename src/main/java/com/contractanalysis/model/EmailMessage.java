@@ -0,0 +1,57 @@
+// src/main/java/com/contractanalysis/model/EmailMessage.java
+package com.contractanalysis.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "email_outbox")
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class EmailMessage {
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    private String dedupKey;
+
+    private String from;
+    private String to;
+    private String subject;
+    private String html;
+
+    private Status status;
+    private int attempts;
+    private Instant nextAttemptAt;
+    private Instant lockedUntil;
+    private String lastError;
+    private String providerId;
+
+    // Idempotency key of the Resend call this message was first handed to; a retry
+    // resends exactly the messages sharing it, under the same key
+    @Indexed(sparse = true)
+    private String batchId;
+
+    private Instant createdAt;
+
+    // Only SENT messages have sentAt, so FAILED ones stay around for inspection
+    @Indexed(name = "sent_ttl", expireAfter = "7d")
+    private Instant sentAt;
+
+    public enum Status {
+        PENDING, // waiting for the dispatcher
+        SENDING, // claimed by a dispatcher until lockedUntil
+        SENT,
+        FAILED   // gave up after max attempts
+    }
+}
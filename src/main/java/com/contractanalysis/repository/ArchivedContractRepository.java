@@ -0,0 +1,20 @@
+// src/main/java/com/contractanalysis/repository/ArchivedContractRepository.java
+package com.contractanalysis.repository;
+
+import com.contractanalysis.model.ArchivedContractAnalysis;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ArchivedContractRepository extends MongoRepository<ArchivedContractAnalysis, String> {
+    Optional<ArchivedContractAnalysis> findByIdAndUserId(String id, String userId);
+
+    // Everything but the compressed payload, for listing
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'payload': 0 }")
+    List<ArchivedContractAnalysis> findSummariesByUserId(String userId);
+
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'modificationCount': 1 }")
+    List<ArchivedContractAnalysis> findModificationCountsByUserId(String userId);
+}
@@ -3,6 +3,7 @@ package com.contractanalysis.repository;
 
 import com.contractanalysis.model.ContractAnalysis;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,4 +11,11 @@ import java.util.Optional;
 public interface ContractRepository extends MongoRepository<ContractAnalysis, String> {
     List<ContractAnalysis> findByUserIdOrderByCreatedAtDesc(String userId);
     Optional<ContractAnalysis> findByIdAndUserId(String id, String userId);
+
+    // Only the modification counter, for conditional GETs
+    @Query(value = "{ '_id': ?0, 'userId': ?1 }", fields = "{ 'modificationCount': 1 }")
+    Optional<ContractAnalysis> findModificationCountByIdAndUserId(String id, String userId);
+
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'modificationCount': 1 }")
+    List<ContractAnalysis> findModificationCountsByUserId(String userId);
 }
@@ -0,0 +1,12 @@
+// src/main/java/com/contractanalysis/repository/EmailOutboxRepository.java
+package com.contractanalysis.repository;
+
+import com.contractanalysis.model.EmailMessage;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface EmailOutboxRepository extends MongoRepository<EmailMessage, String> {
+    Optional<EmailMessage> findByDedupKey(String dedupKey);
+    long countByStatus(EmailMessage.Status status);
+}
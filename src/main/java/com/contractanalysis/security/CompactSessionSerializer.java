@@ -0,0 +1,117 @@
+// src/main/java/com/contractanalysis/security/CompactSessionSerializer.java
+package com.contractanalysis.security;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Session attribute serializer: writes the security context and the session
+// bookkeeping values (timestamps, intervals) as a few tagged bytes and only
+// falls back to JDK serialization for anything else (saved requests, etc.)
+public class CompactSessionSerializer implements RedisSerializer<Object> {
+
+    private static final byte TAG_JDK = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_SECURITY_CONTEXT = 4;
+
+    private final JdkSerializationRedisSerializer fallback = new JdkSerializationRedisSerializer();
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            if (value instanceof SecurityContext context
+                    && context.getAuthentication() instanceof OAuth2AuthenticationToken token
+                    && token.getPrincipal() instanceof UserPrincipal principal) {
+                out.writeByte(TAG_SECURITY_CONTEXT);
+                out.writeUTF(token.getAuthorizedClientRegistrationId());
+                out.writeUTF(principal.getUserId());
+                writeNullableString(out, principal.getEmail());
+                out.writeBoolean(principal.isPremium());
+            } else if (value instanceof String string) {
+                out.writeByte(TAG_STRING);
+                writeNullableString(out, string);
+            } else if (value instanceof Long number) {
+                out.writeByte(TAG_LONG);
+                out.writeLong(number);
+            } else if (value instanceof Integer number) {
+                out.writeByte(TAG_INTEGER);
+                out.writeInt(number);
+            } else {
+                out.writeByte(TAG_JDK);
+                out.write(fallback.serialize(value));
+            }
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize session attribute", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+
+            return switch (bytes[0]) {
+                case TAG_SECURITY_CONTEXT -> {
+                    String registrationId = in.readUTF();
+                    UserPrincipal principal = new UserPrincipal(in.readUTF(), readNullableString(in), in.readBoolean());
+                    yield new SecurityContextImpl(
+                            new OAuth2AuthenticationToken(principal, principal.getAuthorities(), registrationId));
+                }
+                case TAG_STRING -> readNullableString(in);
+                case TAG_LONG -> in.readLong();
+                case TAG_INTEGER -> in.readInt();
+                case TAG_JDK -> fallback.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+                default -> throw new SerializationException("Unknown session attribute tag: " + bytes[0]);
+            };
+        } catch (IOException e) {
+            throw new SerializationException("Cannot deserialize session attribute", e);
+        }
+    }
+
+    private void writeNullableString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private String readNullableString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
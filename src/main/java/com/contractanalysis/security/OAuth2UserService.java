@@ -3,6 +3,7 @@ package com.contractanalysis.security;
 
 import com.contractanalysis.model.User;
 import com.contractanalysis.repository.UserRepository;
+import com.contractanalysis.service.UserCacheService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
@@ -17,6 +18,7 @@ import java.util.Map;
 public class OAuth2UserService extends DefaultOAuth2UserService {
 
     private final UserRepository userRepository;
+    private final UserCacheService userCacheService;
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
@@ -40,6 +42,7 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
                     return userRepository.save(newUser);
                 });
         
-        return new UserPrincipal(user, attributes);
+        userCacheService.put(user);
+        return UserPrincipal.from(user);
     }
 }
\ No newline at end of file
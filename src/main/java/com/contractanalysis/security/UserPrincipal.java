@@ -7,41 +7,60 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class UserPrincipal implements OAuth2User {
+// Slim principal kept in the HTTP session: only ids and flags, the full User
+// document is loaded on demand through UserCacheService
+@Getter
+public class UserPrincipal implements OAuth2User, Serializable {
 
-    @Getter
-    private final User user;
-    private final Map<String, Object> attributes;
+    @Serial
+    private static final long serialVersionUID = 1L;
 
-    public UserPrincipal(User user, Map<String, Object> attributes) {
-        this.user = user;
-        this.attributes = attributes;
+    private final String userId;
+    private final String email;
+    private final boolean premium;
+
+    public UserPrincipal(String userId, String email, boolean premium) {
+        this.userId = userId;
+        this.email = email;
+        this.premium = premium;
+    }
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getEmail(), user.isPremium());
     }
 
     @Override
     public Map<String, Object> getAttributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("id", userId);
+        if (email != null) {
+            attributes.put("email", email);
+        }
         return attributes;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        List<GrantedAuthority> authorities = Collections.singletonList(
-                new SimpleGrantedAuthority("ROLE_USER"));
-        
-        if (user.isPremium()) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+
+        if (premium) {
             authorities.add(new SimpleGrantedAuthority("ROLE_PREMIUM"));
         }
-        
+
         return authorities;
     }
 
     @Override
     public String getName() {
-        return user.getId();
+        return userId;
     }
-}
\ No newline at end of file
+}
@@ -1,49 +1,95 @@
 // src/main/java/com/contractanalysis/service/AiService.java
 package com.contractanalysis.service;
 
+import com.contractanalysis.model.ContractAnalysis;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
 import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.channels.FileChannel;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AiService {
 
-    private final RedisService redisService;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final Pattern TRAILING_COMMA = Pattern.compile(",\\s*([}\\]])");
+
+    private final ModelRouter modelRouter;
+    private final AnalysisCoalescer analysisCoalescer;
+    private final MeterRegistry meterRegistry;
+    private final AnalysisTracing analysisTracing;
+    private final ContractRevisionService contractRevisionService;
+    // Built on the first Gemini call rather than during startup
+    private final SingletonSupplier<RestTemplate> restTemplate = SingletonSupplier.of(RestTemplate::new);
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GeminiRequestWriter requestWriter = new GeminiRequestWriter(objectMapper);
+    // Gemini calls block for tens of seconds; one virtual thread per call instead of the common pool
+    private final ExecutorService aiExecutor = Executors.newVirtualThreadPerTaskExecutor();
     
     @Value("${ai.gemini.api.key}")
     private String geminiApiKey;
     
-    @Value("${ai.model.name}")
-    private String modelName;
+    // Virtual threads remove the pool's implicit cap, so in-flight Gemini calls are bounded
+    // explicitly: a burst of uploads queues here instead of hitting provider rate limits
+    // (which ModelRouter would read as the model being unhealthy)
+    @Value("${ai.gemini.max-concurrent-calls:16}")
+    private int maxConcurrentCalls;
     
-    public String extractTextFromPDF(String fileKey) throws Exception {
-        var pdfData = redisService.get(fileKey)
-                .orElseThrow(() -> new Exception("File not found"));
-                
+    @Value("${ai.gemini.max-queue-wait-seconds:300}")
+    private long maxQueueWaitSeconds;
+    
+    private Semaphore geminiPermits;
+    
+    @PostConstruct
+    void createPermits() {
+        geminiPermits = new Semaphore(maxConcurrentCalls, true);
+    }
+    
+    @PreDestroy
+    void shutdownExecutor() {
+        aiExecutor.shutdown();
+        try {
+            if (!aiExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                aiExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            aiExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public String extractTextFromPDF(FileChannel pdfChannel) throws Exception {
         // In a real application, you would use a PDF extraction library here
         // For example: Apache PDFBox or iText
         
         // Placeholder implementation
-        log.info("Extracting text from PDF with key: {}", fileKey);
+        log.info("Extracting text from PDF of {} bytes", pdfChannel.size());
         
-        // Example implementation using PDFBox would be:
-        // PDDocument document = PDDocument.load((byte[]) pdfData);
+        // Example implementation using PDFBox would be (reads through the channel,
+        // no byte[] copy of the whole file):
+        // PDDocument document = Loader.loadPDF(new RandomAccessReadBufferedFile(path));
         // PDFTextStripper stripper = new PDFTextStripper();
         // String text = stripper.getText(document);
         // document.close();
@@ -55,6 +101,11 @@ public class AiService {
     }
     
     public String detectContractType(String contractText) {
+        return analysisTracing.inSpan("contract.detect_type", Map.of("text.length", contractText.length()),
+                () -> detectType(contractText));
+    }
+    
+    private String detectType(String contractText) {
         try {
             log.info("Detecting contract type. Text length: {} chars", contractText.length());
             
@@ -69,7 +120,9 @@ public class AiService {
                 contractText.substring(0, Math.min(contractText.length(), 2000))
             );
             
-            JsonNode response = callGeminiAPI(prompt);
+            // Route on what is actually sent: only the first 2000 characters go into the prompt
+            String model = modelRouter.route(ModelRouter.CallType.TYPE_DETECTION, prompt.length());
+            JsonNode response = callGeminiAPI(model, prompt);
             if (response != null && response.has("candidates") && response.get("candidates").isArray() && 
                     response.get("candidates").size() > 0) {
                 return response.get("candidates").get(0).get("content").get("parts").get(0).get("text").asText().trim();
@@ -82,71 +135,219 @@ public class AiService {
         }
     }
     
-    public CompletableFuture<Map<String, Object>> analyzeContractWithAI(String contractText, String tier, String contractType) {
-        return CompletableFuture.supplyAsync(() -> {
+    // contentHash is the sha256 of the uploaded file (null for pasted text); it identifies
+    // the contract for single flight without hashing the extracted text again
+    public CompletableFuture<Map<String, Object>> analyzeContractWithAI(
+            String contractText, String contentHash, String tier, String contractType) {
+        Map<String, Object> attributes = Map.of(
+                "tier", tier, "text.length", contractText.length(), "contract.type", String.valueOf(contractType));
+        return CompletableFuture.supplyAsync(analysisTracing.propagate(() -> analysisTracing.inSpan("contract.analyze", attributes, () -> {
             try {
                 log.info("Analyzing {} contract for {} tier user. Text length: {} chars", 
                         contractType, tier, contractText.length());
                 
-                String prompt;
-                if ("premium".equals(tier)) {
-                    prompt = createPremiumPrompt(contractType, contractText);
-                } else {
-                    prompt = createFreePrompt(contractType, contractText);
-                }
+                // Identical uploads (same file or text, tier and model) share one Gemini call across the cluster
+                String model = modelRouter.route(ModelRouter.CallType.forTier(tier), contractText.length());
+                analysisTracing.tag("model", model);
+                Map<String, Object> results = analysisCoalescer.execute(
+                        analysisCoalescer.flightKey(contentHash, contractText, contractType, tier, model),
+                        () -> runAnalysis(contractText, tier, contractType, model));
                 
-                JsonNode response = callGeminiAPI(prompt);
+                return results != null ? results : createFallbackAnalysis();
+            } catch (Exception e) {
+                log.error("Contract analysis error", e);
+                return createFallbackAnalysis();
+            }
+        })), aiExecutor);
+    }
+    
+    // Returns null when the model call or parsing fails, so the failure is not shared
+    private Map<String, Object> runAnalysis(String contractText, String tier, String contractType, String model) {
+        List<CharSequence> prompt = analysisTracing.inSpan("contract.prompt_build", Map.of("tier", tier), () -> 
+                "premium".equals(tier)
+                        ? createPremiumPrompt(contractType, contractText)
+                        : createFreePrompt(contractType, contractText));
+        
+        Map<String, Object> schema = AnalysisResponseSchema.forAnalysis(tier);
+        JsonNode response = callGeminiAPI(model, prompt, schema);
+        if (response != null && response.has("candidates") && response.get("candidates").isArray() && 
+                response.get("candidates").size() > 0) {
+            String responseText = response.get("candidates").get(0).get("content").get("parts").get(0).get("text").asText();
+            
+            Map<String, Object> results = parseWithRepair(responseText, schema, response);
+            if (results != null) {
+                results.put("aiModel", model);
+            }
+            return results;
+        }
+        
+        return null;
+    }
+    
+    // Analyzes only the clauses that changed since the previous version. Completes with
+    // null when the delta cannot be produced so the caller can fall back to a full analysis.
+    public CompletableFuture<Map<String, Object>> analyzeContractChanges(
+            ContractAnalysis previous, ContractRevisionService.ClauseDiff diff, String tier, String contractType) {
+        Map<String, Object> attributes = Map.of(
+                "tier", tier, "clauses.changed", diff.changedClauses().size(), "clauses.removed", diff.removedClauses().size());
+        return CompletableFuture.supplyAsync(analysisTracing.propagate(() -> analysisTracing.inSpan("contract.analyze_revision", attributes, () -> {
+            try {
+                log.info("Analyzing revision of {} for {} tier user. {} changed, {} removed clauses", 
+                        previous.getId(), tier, diff.changedClauses().size(), diff.removedClauses().size());
+                
+                String prompt = analysisTracing.inSpan("contract.prompt_build", Map.of("tier", tier), 
+                        () -> createRevisionPrompt(previous, diff, contractType, "premium".equals(tier)));
+                
+                String model = modelRouter.route(ModelRouter.CallType.forTier(tier), prompt.length());
+                analysisTracing.tag("model", model);
+                Map<String, Object> schema = AnalysisResponseSchema.forRevision(tier);
+                JsonNode response = callGeminiAPI(model, prompt, schema);
                 if (response != null && response.has("candidates") && response.get("candidates").isArray() && 
                         response.get("candidates").size() > 0) {
                     String responseText = response.get("candidates").get(0).get("content").get("parts").get(0).get("text").asText();
-                    
-                    // Clean the response text and parse JSON
-                    responseText = responseText.replaceAll("```json\\s*|\\s*```", "").trim();
-                    
-                    try {
-                        return objectMapper.readValue(responseText, Map.class);
-                    } catch (Exception e) {
-                        log.error("Error parsing JSON response", e);
-                        return createFallbackAnalysis();
+                    Map<String, Object> delta = parseWithRepair(responseText, schema, response);
+                    if (delta != null) {
+                        delta.put("aiModel", model);
                     }
+                    return delta;
                 }
                 
-                return createFallbackAnalysis();
+                return null;
             } catch (Exception e) {
-                log.error("Contract analysis error", e);
-                return createFallbackAnalysis();
+                log.error("Contract revision analysis error", e);
+                return null;
             }
-        });
+        })), aiExecutor);
+    }
+    
+    // Parses the model's JSON. A malformed reply is first repaired locally (fences, surrounding
+    // prose, trailing commas) and then by a cheap model call that only sees the broken JSON,
+    // so a paid analysis is not thrown away over a syntax error.
+    private Map<String, Object> parseWithRepair(String responseText, Map<String, Object> schema, JsonNode response) {
+        return analysisTracing.inSpan("contract.parse", Map.of("response.length", responseText.length()),
+                () -> parseJson(responseText, schema, response));
     }
     
-    private JsonNode callGeminiAPI(String prompt) {
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseJson(String responseText, Map<String, Object> schema, JsonNode response) {
+        long tokens = response.path("usageMetadata").path("totalTokenCount").asLong(0);
+        meterRegistry.counter("ai.analysis.tokens").increment(tokens);
+        
+        String cleaned = responseText.replaceAll("```json\\s*|\\s*```", "").trim();
         try {
-            String url = "https://generativelanguage.googleapis.com/v1beta/models/" + modelName + ":generateContent?key=" + geminiApiKey;
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            Map<String, Object> content = new HashMap<>();
-            
-            Map<String, Object> part = new HashMap<>();
-            part.put("text", prompt);
+            Map<String, Object> results = objectMapper.readValue(cleaned, Map.class);
+            meterRegistry.counter("ai.analysis.parse", "outcome", "ok").increment();
+            return results;
+        } catch (Exception e) {
+            log.warn("Malformed JSON from model, attempting repair: {}", e.getMessage());
+        }
+        
+        int start = cleaned.indexOf('{');
+        int end = cleaned.lastIndexOf('}');
+        if (start >= 0 && end > start) {
+            String candidate = TRAILING_COMMA.matcher(cleaned.substring(start, end + 1)).replaceAll("$1");
+            try {
+                Map<String, Object> results = objectMapper.readValue(candidate, Map.class);
+                meterRegistry.counter("ai.analysis.parse", "outcome", "repaired_locally").increment();
+                return results;
+            } catch (Exception e) {
+                log.warn("Local JSON repair failed: {}", e.getMessage());
+            }
+        }
+        
+        String repairModel = modelRouter.route(ModelRouter.CallType.TYPE_DETECTION, cleaned.length());
+        JsonNode repaired = callGeminiAPI(repairModel, createRepairPrompt(cleaned), schema);
+        if (repaired != null) {
+            // The repair call is billed too; if it fails, both replies were paid for nothing
+            long repairTokens = repaired.path("usageMetadata").path("totalTokenCount").asLong(0);
+            meterRegistry.counter("ai.analysis.tokens").increment(repairTokens);
+            tokens += repairTokens;
+        }
+        if (repaired != null && repaired.path("candidates").path(0).path("content").path("parts").path(0).has("text")) {
+            String repairedText = repaired.path("candidates").path(0).path("content").path("parts").path(0).path("text").asText();
+            try {
+                Map<String, Object> results = objectMapper.readValue(
+                        repairedText.replaceAll("```json\\s*|\\s*```", "").trim(), Map.class);
+                meterRegistry.counter("ai.analysis.parse", "outcome", "repaired_by_model").increment();
+                return results;
+            } catch (Exception e) {
+                log.error("Model JSON repair failed", e);
+            }
+        }
+        
+        meterRegistry.counter("ai.analysis.parse", "outcome", "failed").increment();
+        meterRegistry.counter("ai.analysis.wasted_tokens").increment(tokens);
+        return null;
+    }
+    
+    private String createRepairPrompt(String malformedJson) {
+        return """
+            The following JSON is malformed. Fix only its syntax so it is valid JSON matching the response schema.
+            Keep every value as it is; do not add, remove or rewrite content.
             
-            content.put("parts", new Object[]{part});
-            requestBody.put("contents", new Object[]{content});
+            """ + malformedJson;
+    }
+    
+    private JsonNode callGeminiAPI(String model, String prompt) {
+        return callGeminiAPI(model, List.of(prompt), null);
+    }
+    
+    private JsonNode callGeminiAPI(String model, String prompt, Map<String, Object> responseSchema) {
+        return callGeminiAPI(model, List.of(prompt), responseSchema);
+    }
+    
+    // The body is streamed from the prompt parts and the response parsed from the stream,
+    // so the contract text is not copied into intermediate strings or maps
+    private JsonNode callGeminiAPI(String model, List<CharSequence> promptParts, Map<String, Object> responseSchema) {
+        int promptLength = 0;
+        for (CharSequence part : promptParts) {
+            promptLength += part.length();
+        }
+        Map<String, Object> attributes = Map.of(
+                "model", model, "prompt.length", promptLength, "structured", responseSchema != null);
+        return analysisTracing.inSpan("gemini.generate_content", attributes,
+                () -> postGenerateContent(model, promptParts, responseSchema));
+    }
+    
+    private JsonNode postGenerateContent(String model, List<CharSequence> promptParts, Map<String, Object> responseSchema) {
+        try {
+            if (!geminiPermits.tryAcquire(maxQueueWaitSeconds, TimeUnit.SECONDS)) {
+                meterRegistry.counter("ai.gemini.queue_timeout").increment();
+                log.warn("Gave up waiting for a Gemini call slot for model {}", model);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        
+        // Latency is measured from here so queueing is not held against the model
+        long start = System.nanoTime();
+        try {
+            String url = "https://generativelanguage.googleapis.com/v1beta/models/" + model + ":generateContent?key=" + geminiApiKey;
             
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            String responseBody = restTemplate.postForObject(url, request, String.class);
+            JsonNode response = restTemplate.obtain().execute(url, HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                if (request instanceof StreamingHttpOutputMessage streaming) {
+                    streaming.setBody(out -> requestWriter.write(out, promptParts, responseSchema));
+                } else {
+                    requestWriter.write(request.getBody(), promptParts, responseSchema);
+                }
+            }, clientResponse -> objectMapper.readTree(clientResponse.getBody()));
             
-            return objectMapper.readTree(responseBody);
+            modelRouter.recordCall(model, Duration.ofNanos(System.nanoTime() - start), true);
+            return response;
         } catch (Exception e) {
-            log.error("Error calling Gemini API", e);
+            modelRouter.recordCall(model, Duration.ofNanos(System.nanoTime() - start), false);
+            analysisTracing.recordError(e);
+            log.error("Error calling Gemini API with model {}", model, e);
             return null;
+        } finally {
+            geminiPermits.release();
         }
     }
     
-    private String createPremiumPrompt(String contractType, String contractText) {
-        return String.format("""
+    private static final PromptTemplate PREMIUM_PROMPT = PromptTemplate.compile("""
             Analyze the following %s contract and provide:
             1. A list of at least 10 potential risks for the party receiving the contract, each with a brief explanation and severity level (low, medium, high).
             2. A list of at least 10 potential opportunities or benefits for the receiving party, each with a brief explanation and impact level (low, medium, high).
@@ -186,13 +387,13 @@ public class AiService {
             
             Contract text:
             %s
-            """, 
-            contractType, contractText
-        );
+            """);
+    
+    private List<CharSequence> createPremiumPrompt(String contractType, String contractText) {
+        return PREMIUM_PROMPT.render(contractType, contractText);
     }
     
-    private String createFreePrompt(String contractType, String contractText) {
-        return String.format("""
+    private static final PromptTemplate FREE_PROMPT = PromptTemplate.compile("""
             Analyze the following %s contract and provide:
             1. A list of at least 5 potential risks for the party receiving the contract, each with a brief explanation and severity level (low, medium, high).
             2. A list of at least 5 potential opportunities or benefits for the receiving party, each with a brief explanation and impact level (low, medium, high).
@@ -210,8 +411,82 @@ public class AiService {
             
             Contract text:
             %s
-            """, 
-            contractType, contractText
+            """);
+    
+    private List<CharSequence> createFreePrompt(String contractType, String contractText) {
+        return FREE_PROMPT.render(contractType, contractText);
+    }
+    
+    private String createRevisionPrompt(ContractAnalysis previous, ContractRevisionService.ClauseDiff diff, 
+                                        String contractType, boolean premium) {
+        StringBuilder findings = new StringBuilder();
+        findings.append("Previous risks:\n");
+        List<ContractAnalysis.Risk> risks = previous.getRisks() != null ? previous.getRisks() : List.of();
+        for (int i = 0; i < risks.size(); i++) {
+            findings.append(i).append(". ").append(risks.get(i).getRisk())
+                    .append(" (").append(risks.get(i).getSeverity()).append(")\n");
+        }
+        findings.append("Previous opportunities:\n");
+        List<ContractAnalysis.Opportunity> opportunities = 
+                previous.getOpportunities() != null ? previous.getOpportunities() : List.of();
+        for (int i = 0; i < opportunities.size(); i++) {
+            findings.append(i).append(". ").append(opportunities.get(i).getOpportunity())
+                    .append(" (").append(opportunities.get(i).getImpact()).append(")\n");
+        }
+        
+        if (premium) {
+            findings.append("Previous details (return each for the whole revised contract, unchanged unless ")
+                    .append("the removed, changed or added clauses affect it):\n")
+                    .append(objectMapper.valueToTree(contractRevisionService.premiumDetails(previous)).toPrettyString())
+                    .append("\n");
+        }
+        
+        String premiumFields = premium ? """
+              "recommendations": ["Recommendation 1", ...],
+              "keyClauses": ["Clause 1", ...],
+              "legalCompliance": "Assessment of legal compliance",
+              "negotiationPoints": ["Point 1", ...],
+              "contractDuration": "Duration of the contract, if applicable",
+              "terminationConditions": "Summary of termination conditions, if applicable",
+              "financialTerms": {"description": "Overview of financial terms", "details": ["Detail 1", ...]},
+              "performanceMetrics": ["Metric 1", ...],
+              "intellectualPropertyClauses": "Summary of intellectual property clauses, if applicable",
+            """ : "";
+        
+        return String.format("""
+            A %s contract was previously analyzed. The counterparty sent a revised version.
+            Below are the previous findings, the clauses removed from the contract, and the clauses that were changed or added.
+            Unchanged clauses are not shown and their findings still apply.
+            
+            Previous summary: %s
+            Previous overall score: %s
+            %s
+            Identify risks and opportunities introduced by the changed or added clauses, list the indexes of previous
+            risks and opportunities that no longer apply because of the changes, and update the summary and score
+            for the whole revised contract.
+            
+            Format your response as a JSON object with the following structure:
+            {
+              "risks": [{"risk": "Risk description", "explanation": "Brief explanation", "severity": "low|medium|high"}],
+              "opportunities": [{"opportunity": "Opportunity description", "explanation": "Brief explanation", "impact": "low|medium|high"}],
+              "resolvedRisks": [0, 3],
+              "resolvedOpportunities": [1],
+            %s  "summary": "Updated summary of the whole contract",
+              "overallScore": "Overall score from 1 to 100"
+            }
+            
+            Important: Provide only the JSON object in your response, without any additional text or formatting.
+            
+            Removed clauses:
+            %s
+            
+            Changed or added clauses:
+            %s
+            """,
+            contractType, previous.getSummary(), previous.getOverallScore(), findings,
+            premiumFields,
+            String.join("\n---\n", diff.removedClauses()),
+            String.join("\n---\n", diff.changedClauses())
         );
     }
     
@@ -233,6 +508,7 @@ public class AiService {
         });
         fallbackAnalysis.put("summary", "Error analyzing contract. Please try again later.");
         fallbackAnalysis.put("overallScore", 50);
+        fallbackAnalysis.put("analysisFailed", true);
         
         return fallbackAnalysis;
     }
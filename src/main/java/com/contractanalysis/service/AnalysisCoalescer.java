@@ -0,0 +1,208 @@
+// src/main/java/com/contractanalysis/service/AnalysisCoalescer.java
+package com.contractanalysis.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Cluster-wide single flight for identical analyses. The first node to take the Redis
+// lease runs the analysis and publishes the result; later submitters wait for that
+// result. A leader that fails releases the lease and one that crashes stops renewing
+// it, so a waiting follower takes over.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AnalysisCoalescer {
+
+    private static final String LEASE_PREFIX = "analysis:lease:";
+    private static final String RESULT_PREFIX = "analysis:result:";
+    private static final long MIN_POLL_MS = 200;
+    private static final long MAX_POLL_MS = 2000;
+    private static final int HASH_CHUNK_BYTES = 8192;
+
+    private final RedisService redisService;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analysis-lease-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${analysis.coalescing.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Value("${analysis.coalescing.result-ttl-seconds:600}")
+    private long resultTtlSeconds;
+
+    @Value("${analysis.coalescing.max-wait-seconds:900}")
+    private long maxWaitSeconds;
+
+    // Keys uploads by the hash of the file, computed while spooling. Pasted text is hashed in
+    // fixed-size chunks rather than copied into one byte[] of the whole contract.
+    public String flightKey(String contentHash, String contractText, String contractType, String tier, String model) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(contractType).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (contentHash != null) {
+                digest.update(("file:" + contentHash).getBytes(StandardCharsets.UTF_8));
+            } else {
+                updateUtf8(digest, contractText);
+            }
+            return HexFormat.of().formatHex(digest.digest()) + ":" + tier + ":" + model;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Same bytes as text.getBytes(UTF_8), including its replacement of unpaired surrogates
+    private void updateUtf8(MessageDigest digest, CharSequence text) {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.wrap(text);
+        ByteBuffer out = ByteBuffer.allocate(HASH_CHUNK_BYTES);
+        CoderResult result;
+        do {
+            result = encoder.encode(in, out, true);
+            out.flip();
+            digest.update(out);
+            out.clear();
+        } while (result.isOverflow());
+        while (encoder.flush(out).isOverflow()) {
+            out.flip();
+            digest.update(out);
+            out.clear();
+        }
+        out.flip();
+        digest.update(out);
+    }
+
+    // Returns the shared result, or whatever the supplier returned if this caller ended up
+    // running it. A null result (failed analysis) is never shared.
+    public Map<String, Object> execute(String key, Supplier<Map<String, Object>> analysis) {
+        String owner = UUID.randomUUID().toString();
+        Duration lease = Duration.ofSeconds(leaseSeconds);
+        Instant deadline = Instant.now().plusSeconds(maxWaitSeconds);
+        long pollMs = MIN_POLL_MS;
+        boolean following = false;
+
+        try {
+            while (true) {
+                Optional<Map<String, Object>> shared = readResult(key);
+                if (shared.isPresent()) {
+                    if (following) {
+                        meterRegistry.counter("ai.analysis.coalesced", "outcome", "shared").increment();
+                    }
+                    return shared.get();
+                }
+
+                if (redisService.tryAcquireLease(LEASE_PREFIX + key, owner, lease)) {
+                    // The previous leader may have published just before releasing its lease
+                    shared = readResult(key);
+                    if (shared.isPresent()) {
+                        redisService.releaseLease(LEASE_PREFIX + key, owner);
+                        return shared.get();
+                    }
+                    if (following) {
+                        log.warn("Taking over analysis {} from a failed leader", key);
+                        meterRegistry.counter("ai.analysis.coalesced", "outcome", "takeover").increment();
+                    }
+                    return lead(key, owner, lease, analysis);
+                }
+
+                if (!following) {
+                    following = true;
+                    log.info("Identical analysis {} already running, waiting for its result", key);
+                }
+                if (Instant.now().isAfter(deadline)) {
+                    log.warn("Gave up waiting for analysis {}, running it directly", key);
+                    meterRegistry.counter("ai.analysis.coalesced", "outcome", "timeout").increment();
+                    return analysis.get();
+                }
+
+                Thread.sleep(pollMs);
+                pollMs = Math.min(pollMs * 2, MAX_POLL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return analysis.get();
+        } catch (DataAccessException e) {
+            log.warn("Redis unavailable for analysis coalescing, running {} directly", key, e);
+            return analysis.get();
+        }
+    }
+
+    private Map<String, Object> lead(String key, String owner, Duration lease, Supplier<Map<String, Object>> analysis) {
+        long renewEveryMs = Math.max(lease.toMillis() / 3, 1);
+        ScheduledFuture<?> renewal = leaseRenewer.scheduleAtFixedRate(() -> {
+            try {
+                redisService.renewLease(LEASE_PREFIX + key, owner, lease);
+            } catch (Exception e) {
+                log.warn("Error renewing analysis lease {}", key, e);
+            }
+        }, renewEveryMs, renewEveryMs, TimeUnit.MILLISECONDS);
+
+        try {
+            Map<String, Object> result = analysis.get();
+            if (result != null) {
+                writeResult(key, result);
+            }
+            return result;
+        } finally {
+            renewal.cancel(false);
+            try {
+                redisService.releaseLease(LEASE_PREFIX + key, owner);
+            } catch (Exception e) {
+                log.warn("Error releasing analysis lease {}", key, e);
+            }
+        }
+    }
+
+    private Optional<Map<String, Object>> readResult(String key) {
+        Optional<Object> cached = redisService.get(RESULT_PREFIX + key);
+        if (cached.isPresent() && cached.get() instanceof String json) {
+            try {
+                return Optional.of(objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {}));
+            } catch (Exception e) {
+                log.warn("Discarding unreadable analysis result {}", key, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void writeResult(String key, Map<String, Object> result) {
+        try {
+            redisService.set(RESULT_PREFIX + key, objectMapper.writeValueAsString(result),
+                    Duration.ofSeconds(resultTtlSeconds));
+        } catch (Exception e) {
+            log.warn("Error publishing analysis result {}", key, e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+// src/main/java/com/contractanalysis/service/AnalysisResponseSchema.java
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.ContractAnalysis;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Gemini responseSchema objects derived from the ContractAnalysis result fields, so the
+// model can only return JSON that updateAnalysisWithResults knows how to read
+public final class AnalysisResponseSchema {
+
+    private static final List<String> LEVELS = List.of("low", "medium", "high");
+    private static final Map<String, List<String>> ENUMS = Map.of("severity", LEVELS, "impact", LEVELS);
+    private static final List<String> CORE_FIELDS = List.of("risks", "opportunities", "summary", "overallScore");
+
+    public static final Map<String, Object> FREE = build(CORE_FIELDS, Map.of(), CORE_FIELDS);
+
+    public static final Map<String, Object> PREMIUM = build(
+            List.of("risks", "opportunities", "summary", "recommendations", "keyClauses", "legalCompliance",
+                    "negotiationPoints", "contractDuration", "terminationConditions", "overallScore",
+                    "financialTerms", "performanceMetrics"),
+            Map.of("specificClauses", Map.of("type", "STRING")),
+            CORE_FIELDS);
+
+    public static final Map<String, Object> FREE_REVISION = build(CORE_FIELDS, revisionFields(), CORE_FIELDS);
+
+    public static final Map<String, Object> PREMIUM_REVISION = build(
+            List.of("risks", "opportunities", "summary", "overallScore", "recommendations", "keyClauses",
+                    "legalCompliance", "negotiationPoints", "contractDuration", "terminationConditions",
+                    "financialTerms", "performanceMetrics", "intellectualPropertyClauses"),
+            revisionFields(),
+            CORE_FIELDS);
+
+    private AnalysisResponseSchema() {
+    }
+
+    public static Map<String, Object> forAnalysis(String tier) {
+        return "premium".equals(tier) ? PREMIUM : FREE;
+    }
+
+    public static Map<String, Object> forRevision(String tier) {
+        return "premium".equals(tier) ? PREMIUM_REVISION : FREE_REVISION;
+    }
+
+    private static Map<String, Object> revisionFields() {
+        Map<String, Object> indexes = Map.of("type", "ARRAY", "items", Map.of("type", "INTEGER"));
+        return Map.of("resolvedRisks", indexes, "resolvedOpportunities", indexes);
+    }
+
+    private static Map<String, Object> build(List<String> analysisFields, Map<String, Object> extraFields,
+                                             List<String> required) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (String name : analysisFields) {
+            try {
+                Field field = ContractAnalysis.class.getDeclaredField(name);
+                properties.put(name, schemaOf(field.getName(), field.getGenericType()));
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException("ContractAnalysis has no field " + name, e);
+            }
+        }
+        properties.putAll(extraFields);
+
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "OBJECT");
+        schema.put("properties", properties);
+        schema.put("required", required);
+        return schema;
+    }
+
+    private static Map<String, Object> schemaOf(String name, Type type) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        if (type instanceof ParameterizedType parameterized && parameterized.getRawType() == List.class) {
+            schema.put("type", "ARRAY");
+            schema.put("items", schemaOf(name, parameterized.getActualTypeArguments()[0]));
+        } else if (type == String.class) {
+            schema.put("type", "STRING");
+            if (ENUMS.containsKey(name)) {
+                schema.put("format", "enum");
+                schema.put("enum", ENUMS.get(name));
+            }
+        } else if (type == Integer.class || type == int.class) {
+            schema.put("type", "INTEGER");
+        } else if (type instanceof Class<?> nested && nested.getDeclaringClass() == ContractAnalysis.class) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            List<String> required = new ArrayList<>();
+            for (Field field : nested.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    properties.put(field.getName(), schemaOf(field.getName(), field.getGenericType()));
+                    required.add(field.getName());
+                }
+            }
+            schema.put("type", "OBJECT");
+            schema.put("properties", properties);
+            schema.put("required", required);
+        } else {
+            schema.put("type", "STRING");
+        }
+        return schema;
+    }
+}
@@ -0,0 +1,101 @@
+// src/main/java/com/contractanalysis/service/AnalysisTracing.java
+package com.contractanalysis.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Spans for the analysis pipeline and explicit hand-over of the current span across the
+// CompletableFuture boundaries, so the request, the AI work and the result write share a trace
+@Service
+public class AnalysisTracing {
+
+    private final Tracer tracer;
+
+    public AnalysisTracing(ObjectProvider<Tracer> tracer) {
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+    }
+
+    public <T> T inSpan(String name, Map<String, ?> attributes, Supplier<T> work) {
+        Span span = start(name, attributes);
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return work.get();
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    public <T> T inSpanChecked(String name, Map<String, ?> attributes, Callable<T> work) throws Exception {
+        Span span = start(name, attributes);
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return work.call();
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    public void runInSpan(String name, Map<String, ?> attributes, Runnable work) {
+        inSpan(name, attributes, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Captures the caller's span now and makes it current again wherever the task runs
+    public <T> Supplier<T> propagate(Supplier<T> task) {
+        Span parent = tracer.currentSpan();
+        return () -> {
+            if (parent == null) {
+                return task.get();
+            }
+            try (Tracer.SpanInScope scope = tracer.withSpan(parent)) {
+                return task.get();
+            }
+        };
+    }
+
+    public <T> Consumer<T> propagate(Consumer<T> task) {
+        Span parent = tracer.currentSpan();
+        return value -> {
+            if (parent == null) {
+                task.accept(value);
+                return;
+            }
+            try (Tracer.SpanInScope scope = tracer.withSpan(parent)) {
+                task.accept(value);
+            }
+        };
+    }
+
+    public void tag(String key, Object value) {
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            span.tag(key, String.valueOf(value));
+        }
+    }
+
+    public void recordError(Throwable error) {
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            span.error(error);
+        }
+    }
+
+    private Span start(String name, Map<String, ?> attributes) {
+        Span span = tracer.nextSpan().name(name);
+        attributes.forEach((key, value) -> span.tag(key, String.valueOf(value)));
+        return span.start();
+    }
+}
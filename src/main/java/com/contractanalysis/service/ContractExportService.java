@@ -0,0 +1,176 @@
+// src/main/java/com/contractanalysis/service/ContractExportService.java
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.ArchivedContractAnalysis;
+import com.contractanalysis.model.ContractAnalysis;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ContractExportService {
+
+    public static final Set<String> EXPORTABLE_FIELDS = Set.of(
+            "id", "contractText", "contentHash", "risks", "opportunities", "summary", "recommendations",
+            "keyClauses", "legalCompliance", "negotiationPoints", "contractDuration", "terminationConditions",
+            "overallScore", "compensationStructure", "performanceMetrics", "intellectualPropertyClauses",
+            "createdAt", "version", "previousVersionId", "userFeedback", "customFields", "expirationDate",
+            "language", "aiModel", "contractType", "financialTerms");
+
+    // CSV needs a fixed header, so it defaults to the flat fields
+    private static final List<String> DEFAULT_CSV_FIELDS = List.of(
+            "id", "contractType", "overallScore", "summary", "version", "aiModel", "createdAt");
+
+    private static final int CURSOR_BATCH_SIZE = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final RetentionService retentionService;
+    private final ObjectMapper objectMapper;
+
+    public enum Format { NDJSON, CSV }
+
+    public List<String> resolveFields(Format format, List<String> requested) {
+        List<String> fields = new ArrayList<>();
+        if (requested == null || requested.isEmpty()) {
+            if (format == Format.CSV) {
+                fields.addAll(DEFAULT_CSV_FIELDS);
+            }
+            return fields;
+        }
+
+        // id is always exported: it is the resume token for the next request
+        fields.add("id");
+        for (String field : requested) {
+            String name = field.trim();
+            if (!EXPORTABLE_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown export field: " + name);
+            }
+            if (!fields.contains(name)) {
+                fields.add(name);
+            }
+        }
+        return fields;
+    }
+
+    // Streams the user's analyses in _id order straight from Mongo cursors over the hot
+    // collection and the archive, merged as they go; an empty field list means all fields.
+    // Resumes after the given cursor token (the last exported id).
+    public void export(String userId, Format format, List<String> fields, String cursor, OutputStream out) throws IOException {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (cursor != null && !cursor.isBlank()) {
+            criteria = criteria.and("_id").gt(new ObjectId(cursor));
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+        fields.forEach(field -> query.fields().include(field));
+
+        // Archived documents are read whole: the requested fields are inside the payload
+        Query archiveQuery = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writeCsvRow(writer, new ArrayList<>(fields));
+        }
+
+        long count = 0;
+        try (Stream<ContractAnalysis> analyses = mongoTemplate.stream(query, ContractAnalysis.class);
+             Stream<ArchivedContractAnalysis> archived = mongoTemplate.stream(archiveQuery, ArchivedContractAnalysis.class)) {
+            Iterator<ContractAnalysis> hot = analyses.iterator();
+            Iterator<ArchivedContractAnalysis> cold = archived.iterator();
+            ContractAnalysis nextHot = hot.hasNext() ? hot.next() : null;
+            ArchivedContractAnalysis nextCold = cold.hasNext() ? cold.next() : null;
+
+            while (nextHot != null || nextCold != null) {
+                int order = nextHot == null ? 1 : nextCold == null ? -1
+                        : new ObjectId(nextHot.getId()).compareTo(new ObjectId(nextCold.getId()));
+                ContractAnalysis analysis;
+                if (order <= 0) {
+                    analysis = nextHot;
+                    nextHot = hot.hasNext() ? hot.next() : null;
+                    // Caught between the archive write and the hot delete: export it once
+                    if (order == 0) {
+                        nextCold = cold.hasNext() ? cold.next() : null;
+                    }
+                } else {
+                    analysis = retentionService.rehydrate(nextCold);
+                    nextCold = cold.hasNext() ? cold.next() : null;
+                }
+
+                Map<String, Object> record = toRecord(analysis, fields);
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, new ArrayList<>(record.values()));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(record));
+                    writer.write('\n');
+                }
+                count++;
+            }
+        }
+
+        writer.flush();
+        log.info("Exported {} analyses for user {} as {}", count, userId, format);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> toRecord(ContractAnalysis analysis, List<String> fields) {
+        Map<String, Object> all = objectMapper.convertValue(analysis, LinkedHashMap.class);
+        all.remove("userId");
+        if (fields.isEmpty()) {
+            return all;
+        }
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (String field : fields) {
+            record.put(field, all.get(field));
+        }
+        return record;
+    }
+
+    private void writeCsvRow(Writer writer, List<Object> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            String cell = value instanceof String ? (String) value : value instanceof Number || value instanceof Boolean
+                    ? value.toString() : objectMapper.writeValueAsString(value);
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(cell.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(cell);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
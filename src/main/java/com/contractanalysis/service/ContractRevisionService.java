@@ -0,0 +1,208 @@
+// src/main/java/com/contractanalysis/service/ContractRevisionService.java
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.ContractAnalysis;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+@Service
+@Slf4j
+public class ContractRevisionService {
+
+    // Clauses are separated by blank lines or start with a numbered / "Section" / "Article" heading
+    private static final Pattern CLAUSE_BOUNDARY = Pattern.compile(
+            "\\n\\s*\\n|\\n(?=\\s*(?:\\d+(?:\\.\\d+)*[.)]\\s|(?i:section|article|clause)\\s+\\d))");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Premium fields describing the whole contract. A revision gets their previous values and
+    // returns each one, updated where the changed or removed clauses affect it.
+    public static final List<String> PREMIUM_FIELDS = List.of("recommendations", "keyClauses", "legalCompliance",
+            "negotiationPoints", "contractDuration", "terminationConditions", "financialTerms", "performanceMetrics",
+            "intellectualPropertyClauses");
+
+    @Value("${analysis.revision.max-changed-ratio:0.5}")
+    private double maxChangedRatio;
+
+    public ClauseDiff diff(String previousText, String revisedText) {
+        Map<String, String> previousClauses = clausesByHash(previousText);
+        Map<String, String> revisedClauses = clausesByHash(revisedText);
+
+        List<String> changed = new ArrayList<>();
+        revisedClauses.forEach((hash, clause) -> {
+            if (!previousClauses.containsKey(hash)) {
+                changed.add(clause);
+            }
+        });
+
+        List<String> removed = new ArrayList<>();
+        previousClauses.forEach((hash, clause) -> {
+            if (!revisedClauses.containsKey(hash)) {
+                removed.add(clause);
+            }
+        });
+
+        log.info("Clause diff: {} -> {} clauses, {} changed or added, {} removed",
+                previousClauses.size(), revisedClauses.size(), changed.size(), removed.size());
+        return new ClauseDiff(previousClauses.size(), revisedClauses.size(), changed, removed);
+    }
+
+    // A revision is analyzed incrementally only when the previous version has a real
+    // analysis of the same tier (so the merged result has the right shape) and most clauses
+    // are unchanged; otherwise a full analysis is cheaper and more accurate
+    public boolean canAnalyzeIncrementally(ContractAnalysis previous, ClauseDiff diff, String tier) {
+        boolean previousComplete = previous.getSummary() != null && !previous.getSummary().isEmpty()
+                && !Boolean.TRUE.equals(previous.getAnalysisFailed());
+        return previousComplete && tier.equals(previous.getTier()) && diff.changedRatio() <= maxChangedRatio;
+    }
+
+    // Builds a full result map (same shape as a full analysis) from the previous analysis
+    // and the delta returned for the changed clauses
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> merge(ContractAnalysis previous, Map<String, Object> delta) {
+        Map<String, Object> results = toResults(previous);
+
+        List<Map<String, String>> risks = (List<Map<String, String>>) results.get("risks");
+        results.put("risks", mergeFindings(risks, delta.get("risks"), delta.get("resolvedRisks")));
+
+        List<Map<String, String>> opportunities = (List<Map<String, String>>) results.get("opportunities");
+        results.put("opportunities",
+                mergeFindings(opportunities, delta.get("opportunities"), delta.get("resolvedOpportunities")));
+
+        List<String> replaced = new ArrayList<>(List.of("summary", "overallScore", "aiModel"));
+        replaced.addAll(PREMIUM_FIELDS);
+        for (String key : replaced) {
+            if (delta.get(key) != null) {
+                results.put(key, delta.get(key));
+            }
+        }
+
+        return results;
+    }
+
+    // Previous values of the premium fields, in result-map form, for the revision prompt
+    public Map<String, Object> premiumDetails(ContractAnalysis previous) {
+        Map<String, Object> results = toResults(previous);
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (String key : PREMIUM_FIELDS) {
+            putIfPresent(details, key, results.get(key));
+        }
+        return details;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, String>> mergeFindings(List<Map<String, String>> previous, Object added, Object resolved) {
+        Set<Integer> resolvedIndexes = new HashSet<>();
+        if (resolved instanceof List) {
+            for (Object index : (List<Object>) resolved) {
+                if (index instanceof Number) {
+                    resolvedIndexes.add(((Number) index).intValue());
+                }
+            }
+        }
+
+        List<Map<String, String>> merged = new ArrayList<>();
+        for (int i = 0; i < previous.size(); i++) {
+            if (!resolvedIndexes.contains(i)) {
+                merged.add(previous.get(i));
+            }
+        }
+        if (added instanceof List) {
+            merged.addAll((List<Map<String, String>>) added);
+        }
+        return merged;
+    }
+
+    private Map<String, Object> toResults(ContractAnalysis previous) {
+        Map<String, Object> results = new HashMap<>();
+        results.put("summary", previous.getSummary());
+        results.put("overallScore", previous.getOverallScore());
+
+        List<Map<String, String>> risks = new ArrayList<>();
+        if (previous.getRisks() != null) {
+            for (ContractAnalysis.Risk risk : previous.getRisks()) {
+                Map<String, String> riskData = new HashMap<>();
+                riskData.put("risk", risk.getRisk());
+                riskData.put("explanation", risk.getExplanation());
+                riskData.put("severity", risk.getSeverity());
+                risks.add(riskData);
+            }
+        }
+        results.put("risks", risks);
+
+        List<Map<String, String>> opportunities = new ArrayList<>();
+        if (previous.getOpportunities() != null) {
+            for (ContractAnalysis.Opportunity opportunity : previous.getOpportunities()) {
+                Map<String, String> oppData = new HashMap<>();
+                oppData.put("opportunity", opportunity.getOpportunity());
+                oppData.put("explanation", opportunity.getExplanation());
+                oppData.put("impact", opportunity.getImpact());
+                opportunities.add(oppData);
+            }
+        }
+        results.put("opportunities", opportunities);
+
+        putIfPresent(results, "aiModel", previous.getAiModel());
+        putIfPresent(results, "recommendations", previous.getRecommendations());
+        putIfPresent(results, "keyClauses", previous.getKeyClauses());
+        putIfPresent(results, "legalCompliance", previous.getLegalCompliance());
+        putIfPresent(results, "negotiationPoints", previous.getNegotiationPoints());
+        putIfPresent(results, "contractDuration", previous.getContractDuration());
+        putIfPresent(results, "terminationConditions", previous.getTerminationConditions());
+        putIfPresent(results, "performanceMetrics", previous.getPerformanceMetrics());
+        putIfPresent(results, "intellectualPropertyClauses", previous.getIntellectualPropertyClauses());
+
+        if (previous.getFinancialTerms() != null) {
+            Map<String, Object> financialData = new HashMap<>();
+            financialData.put("description", previous.getFinancialTerms().getDescription());
+            financialData.put("details", previous.getFinancialTerms().getDetails());
+            results.put("financialTerms", financialData);
+        }
+
+        return results;
+    }
+
+    private void putIfPresent(Map<String, Object> results, String key, Object value) {
+        if (value != null) {
+            results.put(key, value);
+        }
+    }
+
+    private Map<String, String> clausesByHash(String text) {
+        Map<String, String> clauses = new LinkedHashMap<>();
+        for (String clause : CLAUSE_BOUNDARY.split(text)) {
+            String normalized = WHITESPACE.matcher(clause).replaceAll(" ").trim();
+            if (!normalized.isEmpty()) {
+                clauses.putIfAbsent(
+                        DigestUtils.md5DigestAsHex(normalized.getBytes(StandardCharsets.UTF_8)),
+                        clause.trim());
+            }
+        }
+        return clauses;
+    }
+
+    public record ClauseDiff(int previousClauses, int revisedClauses,
+                             List<String> changedClauses, List<String> removedClauses) {
+
+        public boolean isEmpty() {
+            return changedClauses.isEmpty() && removedClauses.isEmpty();
+        }
+
+        // Share of the larger version that was touched, so deleting clauses counts as change too
+        public double changedRatio() {
+            int total = Math.max(previousClauses, revisedClauses);
+            return total == 0 ? 1.0 : (double) (changedClauses.size() + removedClauses.size()) / total;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+// src/main/java/com/contractanalysis/service/DashboardStatsService.java
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.ArchivedContractAnalysis;
+import com.contractanalysis.model.ContractAnalysis;
+import com.contractanalysis.model.DashboardStats;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DashboardStatsService {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final String LOCK_PREFIX = "dashboard:lock:";
+    private static final Duration LOCK_LEASE = Duration.ofSeconds(30);
+    private static final Duration LOCK_WAIT = Duration.ofSeconds(10);
+    private static final long LOCK_RETRY_MS = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final RedisService redisService;
+
+    // The analysis write and its $inc run together under the user's dashboard lock, so a
+    // rebuild either already sees the write and the $inc lands after the swap, or sees
+    // neither; no increment is lost or counted twice
+    public void recordCompleted(ContractAnalysis analysis, Runnable save) {
+        withUserLock(analysis.getUserId(), false, () -> {
+            save.run();
+            if (isCompleted(analysis)) {
+                apply(analysis, 1);
+            }
+            return null;
+        });
+    }
+
+    // Returns whether delete removed anything; only then is the analysis uncounted
+    public boolean recordDeleted(ContractAnalysis analysis, BooleanSupplier delete) {
+        return withUserLock(analysis.getUserId(), false, () -> {
+            boolean deleted = delete.getAsBoolean();
+            // Only completed analyses were ever counted
+            if (deleted && isCompleted(analysis)) {
+                apply(analysis, -1);
+            }
+            return deleted;
+        });
+    }
+
+    public Map<String, Object> getDashboard(String userId) {
+        DashboardStats stats = mongoTemplate.findById(userId, DashboardStats.class);
+        if (stats == null) {
+            stats = rebuild(userId);
+        }
+        return toResponse(stats);
+    }
+
+    public DashboardStats rebuild(String userId) {
+        return withUserLock(userId, true, () -> rebuildLocked(userId));
+    }
+
+    // Recomputes the counters with aggregation pipelines and replaces the summary. Archived
+    // analyses still belong to the user, so the archive is counted alongside contract_analysis.
+    private DashboardStats rebuildLocked(String userId) {
+        DashboardStats stats = DashboardStats.builder()
+                .userId(userId)
+                .countByType(new HashMap<>())
+                .riskSeverity(new HashMap<>())
+                .monthlyCount(new HashMap<>())
+                .build();
+        accumulate(stats, ContractAnalysis.class, "risks", "risks.severity");
+        accumulate(stats, ArchivedContractAnalysis.class, "riskSeverities", "riskSeverities");
+        stats.setRebuiltAt(Instant.now());
+
+        mongoTemplate.save(stats);
+        log.info("Rebuilt dashboard stats for user {} from {} analyses", stats.getUserId(), stats.getTotalCount());
+        return stats;
+    }
+
+    private void accumulate(DashboardStats stats, Class<?> collection, String risksField, String severityField) {
+        Criteria completed = Criteria.where("userId").is(stats.getUserId()).and("summary").nin(null, "")
+                .and("analysisFailed").ne(true);
+
+        for (Document group : aggregate(collection, Aggregation.newAggregation(
+                Aggregation.match(completed),
+                Aggregation.group("contractType").count().as("count")))) {
+            long count = ((Number) group.get("count")).longValue();
+            stats.getCountByType().merge(key(group.getString("_id")), count, Long::sum);
+            stats.setTotalCount(stats.getTotalCount() + count);
+        }
+
+        for (Document group : aggregate(collection, Aggregation.newAggregation(
+                Aggregation.match(completed),
+                Aggregation.unwind(risksField),
+                Aggregation.group(severityField).count().as("count")))) {
+            stats.getRiskSeverity().merge(key(group.getString("_id")).toLowerCase(Locale.ROOT),
+                    ((Number) group.get("count")).longValue(), Long::sum);
+        }
+
+        for (Document group : aggregate(collection, Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(completed, Criteria.where("overallScore").ne(null))),
+                Aggregation.group().sum("overallScore").as("sum").count().as("count")))) {
+            stats.setScoreSum(stats.getScoreSum() + ((Number) group.get("sum")).longValue());
+            stats.setScoredCount(stats.getScoredCount() + ((Number) group.get("count")).longValue());
+        }
+
+        for (Document group : aggregate(collection, Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(completed, Criteria.where("createdAt").ne(null))),
+                Aggregation.project().and(DateOperators.DateToString.dateOf("createdAt").toString("%Y-%m")
+                        .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()))).as("month"),
+                Aggregation.group("month").count().as("count")))) {
+            stats.getMonthlyCount().merge(group.getString("_id"), ((Number) group.get("count")).longValue(), Long::sum);
+        }
+    }
+
+    private Iterable<Document> aggregate(Class<?> collection, Aggregation aggregation) {
+        return mongoTemplate.aggregate(aggregation, collection, Document.class);
+    }
+
+    private void apply(ContractAnalysis analysis, int delta) {
+        Update update = new Update()
+                .inc("totalCount", delta)
+                .inc("countByType." + key(analysis.getContractType()), delta);
+
+        if (analysis.getRisks() != null) {
+            Map<String, Integer> severities = new HashMap<>();
+            for (ContractAnalysis.Risk risk : analysis.getRisks()) {
+                severities.merge(key(risk.getSeverity()).toLowerCase(Locale.ROOT), 1, Integer::sum);
+            }
+            severities.forEach((severity, count) -> update.inc("riskSeverity." + severity, delta * count));
+        }
+
+        if (analysis.getOverallScore() != null) {
+            update.inc("scoreSum", delta * analysis.getOverallScore())
+                    .inc("scoredCount", delta);
+        }
+
+        if (analysis.getCreatedAt() != null) {
+            update.inc("monthlyCount." + MONTH.format(analysis.getCreatedAt()), delta);
+        }
+
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(analysis.getUserId())), update, DashboardStats.class);
+
+        // No summary yet: build it from the collection, which already reflects this change,
+        // instead of creating one that holds only this delta
+        if (result.getMatchedCount() == 0) {
+            rebuildLocked(analysis.getUserId());
+        }
+    }
+
+    // The fallback written when the AI call fails has a summary and a score of 50, but is
+    // not an analysis; counting it would drag the average score towards 50
+    private boolean isCompleted(ContractAnalysis analysis) {
+        return analysis.getSummary() != null && !analysis.getSummary().isEmpty()
+                && !Boolean.TRUE.equals(analysis.getAnalysisFailed());
+    }
+
+    // Per-user lease in Redis shared by every node. Writers fall back to updating without
+    // it (the next rebuild corrects any drift) rather than dropping the analysis write
+    private <T> T withUserLock(String userId, boolean required, Supplier<T> work) {
+        String key = LOCK_PREFIX + userId;
+        String owner = UUID.randomUUID().toString();
+        boolean locked = acquire(key, owner);
+        if (!locked) {
+            if (required) {
+                throw new IllegalStateException("Dashboard stats for user " + userId + " are locked");
+            }
+            log.warn("Updating dashboard stats for user {} without the lock", userId);
+        }
+
+        try {
+            return work.get();
+        } finally {
+            if (locked) {
+                try {
+                    redisService.releaseLease(key, owner);
+                } catch (Exception e) {
+                    log.warn("Error releasing dashboard lock {}", key, e);
+                }
+            }
+        }
+    }
+
+    private boolean acquire(String key, String owner) {
+        long deadline = System.nanoTime() + LOCK_WAIT.toNanos();
+        try {
+            while (!redisService.tryAcquireLease(key, owner, LOCK_LEASE)) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                Thread.sleep(LOCK_RETRY_MS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Error acquiring dashboard lock {}", key, e);
+            return false;
+        }
+    }
+
+    // Map keys become Mongo field names, which must not contain '.' or start with '$'
+    private String key(String value) {
+        if (value == null || value.isBlank()) {
+            return "unknown";
+        }
+        return value.trim().replace('.', '_').replace('$', '_');
+    }
+
+    private Map<String, Object> toResponse(DashboardStats stats) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("totalCount", stats.getTotalCount());
+        response.put("countByType", stats.getCountByType() != null ? stats.getCountByType() : Map.of());
+        response.put("riskSeverity", stats.getRiskSeverity() != null ? stats.getRiskSeverity() : Map.of());
+        response.put("averageScore", stats.getScoredCount() > 0
+                ? (double) stats.getScoreSum() / stats.getScoredCount() : null);
+        response.put("monthlyCount", stats.getMonthlyCount() != null ? stats.getMonthlyCount() : Map.of());
+        return response;
+    }
+}
@@ -0,0 +1,264 @@
+// src/main/java/com/contractanalysis/service/EmailOutboxDispatcher.java
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.EmailMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EmailOutboxDispatcher {
+
+    private static final String BATCH_URL = "https://api.resend.com/emails/batch";
+    private static final Duration CLAIM_LEASE = Duration.ofMinutes(2);
+    // Both well under CLAIM_LEASE, so a hung call is abandoned before another node can reclaim the batch
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final MongoTemplate mongoTemplate;
+    // Built on the first send rather than during startup
+    private final SingletonSupplier<RestTemplate> restTemplate =
+            SingletonSupplier.of(EmailOutboxDispatcher::createRestTemplate);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${resend.api.key}")
+    private String resendApiKey;
+
+    // Resend accepts at most 100 emails per batch call
+    @Value("${email.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    private static RestTemplate createRestTemplate() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(CONNECT_TIMEOUT);
+        requestFactory.setReadTimeout(READ_TIMEOUT);
+        return new RestTemplate(requestFactory);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:5000}")
+    public void drain() {
+        List<EmailMessage> batch = claimBatch();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            markSent(batch, sendBatch(batch));
+            log.info("Sent {} queued emails", batch.size());
+        } catch (HttpClientErrorException e) {
+            if (isRetryable(e)) {
+                log.warn("Resend deferred a batch of {} ({}), retrying later", batch.size(), e.getStatusCode());
+                batch.forEach(message -> reschedule(message, e.getMessage()));
+            } else if (batch.size() > 1) {
+                // Resend rejects the whole batch for one bad message and sends none of it,
+                // so it is safe to retry each message on its own key
+                log.warn("Resend rejected a batch of {}, sending individually", batch.size());
+                batch.forEach(this::sendIndividually);
+            } else {
+                fail(batch.get(0), e.getMessage());
+            }
+        } catch (Exception e) {
+            log.error("Error sending email batch of {}", batch.size(), e);
+            batch.forEach(message -> reschedule(message, e.getMessage()));
+        }
+    }
+
+    // Claims due messages so several nodes can drain the same outbox; SENDING messages
+    // whose lease expired (e.g. node crashed mid-send) are reclaimed. A message that was
+    // already handed to Resend is only ever resent together with the rest of its original
+    // batch, in the same order and under the same Idempotency-Key, so Resend can drop it
+    // if the first call went through after all
+    private List<EmailMessage> claimBatch() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant lockedUntil = now.plus(CLAIM_LEASE);
+        Update claim = new Update()
+                .set("status", EmailMessage.Status.SENDING)
+                .set("lockedUntil", lockedUntil)
+                .inc("attempts", 1);
+
+        EmailMessage first = mongoTemplate.findAndModify(
+                Query.query(due(now)), claim, FindAndModifyOptions.options().returnNew(true), EmailMessage.class);
+        if (first == null) {
+            return List.of();
+        }
+
+        List<EmailMessage> batch = new ArrayList<>();
+        if (first.getBatchId() != null) {
+            mongoTemplate.updateMulti(
+                    Query.query(new Criteria().andOperator(
+                            Criteria.where("batchId").is(first.getBatchId()),
+                            Criteria.where("_id").ne(first.getId()),
+                            due(now))),
+                    claim, EmailMessage.class);
+            batch.addAll(mongoTemplate.find(
+                    Query.query(Criteria.where("batchId").is(first.getBatchId())
+                            .and("status").is(EmailMessage.Status.SENDING)
+                            .and("lockedUntil").is(lockedUntil)),
+                    EmailMessage.class));
+        } else {
+            batch.add(first);
+            Query fresh = Query.query(new Criteria().andOperator(Criteria.where("batchId").is(null), due(now)));
+            while (batch.size() < batchSize) {
+                EmailMessage claimed = mongoTemplate.findAndModify(
+                        fresh, claim, FindAndModifyOptions.options().returnNew(true), EmailMessage.class);
+                if (claimed == null) {
+                    break;
+                }
+                batch.add(claimed);
+            }
+            assignBatchId(batch, UUID.randomUUID().toString());
+        }
+
+        batch.sort(Comparator.comparing(EmailMessage::getId));
+        return batch;
+    }
+
+    private Criteria due(Instant now) {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(EmailMessage.Status.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(EmailMessage.Status.SENDING).and("lockedUntil").lte(now)
+        );
+    }
+
+    private void assignBatchId(List<EmailMessage> batch, String batchId) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(batch.stream().map(EmailMessage::getId).toList())),
+                new Update().set("batchId", batchId),
+                EmailMessage.class);
+        batch.forEach(message -> message.setBatchId(batchId));
+    }
+
+    // The message's own dedup key becomes its idempotency key from here on
+    private void sendIndividually(EmailMessage message) {
+        List<EmailMessage> single = List.of(message);
+        assignBatchId(single, message.getDedupKey());
+
+        try {
+            markSent(single, sendBatch(single));
+        } catch (HttpClientErrorException e) {
+            if (isRetryable(e)) {
+                reschedule(message, e.getMessage());
+            } else {
+                fail(message, e.getMessage());
+            }
+        } catch (Exception e) {
+            log.error("Error sending email {}", message.getDedupKey(), e);
+            reschedule(message, e.getMessage());
+        }
+    }
+
+    // 429 is rate limiting; 409 means the same Idempotency-Key is in flight on another node
+    private boolean isRetryable(HttpClientErrorException e) {
+        return e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS || e.getStatusCode() == HttpStatus.CONFLICT;
+    }
+
+    private List<String> sendBatch(List<EmailMessage> batch) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Authorization", "Bearer " + resendApiKey);
+        headers.set("Idempotency-Key", batch.get(0).getBatchId());
+
+        List<Map<String, Object>> requestBody = new ArrayList<>();
+        for (EmailMessage message : batch) {
+            Map<String, Object> email = new HashMap<>();
+            email.put("from", message.getFrom());
+            email.put("to", message.getTo());
+            email.put("subject", message.getSubject());
+            email.put("html", message.getHtml());
+            requestBody.add(email);
+        }
+
+        HttpEntity<List<Map<String, Object>>> request = new HttpEntity<>(requestBody, headers);
+        String responseBody = restTemplate.obtain().postForObject(BATCH_URL, request, String.class);
+
+        List<String> providerIds = new ArrayList<>();
+        JsonNode data = objectMapper.readTree(responseBody).path("data");
+        if (data.isArray()) {
+            data.forEach(node -> providerIds.add(node.path("id").asText(null)));
+        }
+        return providerIds;
+    }
+
+    private void markSent(List<EmailMessage> batch, List<String> providerIds) {
+        Instant now = Instant.now();
+        for (int i = 0; i < batch.size(); i++) {
+            String providerId = i < providerIds.size() ? providerIds.get(i) : null;
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(batch.get(i).getId())),
+                    new Update()
+                            .set("status", EmailMessage.Status.SENT)
+                            .set("sentAt", now)
+                            .set("providerId", providerId)
+                            .unset("lockedUntil"),
+                    EmailMessage.class);
+        }
+    }
+
+    // Rejected by Resend as invalid: retrying the same payload cannot succeed
+    private void fail(EmailMessage message, String error) {
+        log.error("Resend rejected email {}: {}", message.getDedupKey(), error);
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(message.getId())),
+                new Update()
+                        .set("status", EmailMessage.Status.FAILED)
+                        .set("lastError", error)
+                        .unset("lockedUntil"),
+                EmailMessage.class);
+    }
+
+    private void reschedule(EmailMessage message, String error) {
+        Update update = new Update()
+                .set("lastError", error)
+                .unset("lockedUntil");
+
+        if (message.getAttempts() >= maxAttempts) {
+            update.set("status", EmailMessage.Status.FAILED);
+            log.error("Giving up on email {} after {} attempts", message.getDedupKey(), message.getAttempts());
+        } else {
+            long factor = 1L << Math.min(message.getAttempts() - 1, 16);
+            Duration backoff = BASE_BACKOFF.multipliedBy(factor);
+            if (backoff.compareTo(MAX_BACKOFF) > 0) {
+                backoff = MAX_BACKOFF;
+            }
+            update.set("status", EmailMessage.Status.PENDING)
+                    .set("nextAttemptAt", Instant.now().plus(backoff));
+        }
+
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(message.getId())), update, EmailMessage.class);
+    }
+}
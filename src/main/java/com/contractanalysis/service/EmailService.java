@@ -1,48 +1,55 @@
 // src/main/java/com/contractanalysis/service/EmailService.java
 package com.contractanalysis.service;
 
+import com.contractanalysis.model.EmailMessage;
+import com.contractanalysis.repository.EmailOutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Instant;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    
-    @Value("${resend.api.key}")
-    private String resendApiKey;
-    
-    public void sendPremiumConfirmationEmail(String userEmail, String userName) {
+    private static final String FROM_ADDRESS = "Acme <onboarding@resend.dev>";
+
+    private final EmailOutboxRepository emailOutboxRepository;
+
+    // Emails are only written to the outbox here; EmailOutboxDispatcher delivers them.
+    // eventId identifies the upgrade (e.g. the payment/checkout id), so a retried
+    // webhook is deduplicated but a later re-subscription gets its own confirmation
+    public void sendPremiumConfirmationEmail(String userEmail, String userName, String eventId) {
+        enqueue(
+                "premium-confirmation:" + userEmail + ":" + eventId,
+                userEmail,
+                "Welcome to Premium",
+                String.format("<p>Hi %s,</p><p>Welcome to Premium. You're now a Premium user!</p>", userName)
+        );
+    }
+
+    public void enqueue(String dedupKey, String to, String subject, String html) {
+        Instant now = Instant.now();
+        EmailMessage message = EmailMessage.builder()
+                .dedupKey(dedupKey)
+                .from(FROM_ADDRESS)
+                .to(to)
+                .subject(subject)
+                .html(html)
+                .status(EmailMessage.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+
         try {
-            String url = "https://api.resend.com/emails";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + resendApiKey);
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("from", "Acme <onboarding@resend.dev>");
-            requestBody.put("to", userEmail);
-            requestBody.put("subject", "Welcome to Premium");
-            requestBody.put("html", String.format("<p>Hi %s,</p><p>Welcome to Premium. You're now a Premium user!</p>", userName));
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            restTemplate.postForObject(url, request, String.class);
-            
-            log.info("Premium confirmation email sent to {}", userEmail);
-        } catch (Exception e) {
-            log.error("Error sending premium confirmation email", e);
+            emailOutboxRepository.insert(message);
+            log.info("Queued email {} for {}", dedupKey, to);
+        } catch (DuplicateKeyException e) {
+            log.info("Email {} already queued, skipping duplicate", dedupKey);
         }
     }
-}
\ No newline at end of file
+}
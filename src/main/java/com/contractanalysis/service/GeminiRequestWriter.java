@@ -0,0 +1,93 @@
+// src/main/java/com/contractanalysis/service/GeminiRequestWriter.java
+package com.contractanalysis.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+// Writes a generateContent request body straight to the HTTP output stream. The prompt
+// parts are fed to Jackson through a Reader, which escapes and encodes them in small
+// chunks, so the prompt is never materialized as one String, a Map tree or a byte[].
+public class GeminiRequestWriter {
+
+    private final ObjectMapper objectMapper;
+
+    public GeminiRequestWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(OutputStream out, List<CharSequence> promptParts, Map<String, Object> responseSchema) throws IOException {
+        JsonGenerator json = objectMapper.createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        json.writeStartObject();
+        json.writeArrayFieldStart("contents");
+        json.writeStartObject();
+        json.writeArrayFieldStart("parts");
+        json.writeStartObject();
+        json.writeFieldName("text");
+        json.writeString(new CharSequencesReader(promptParts), -1);
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeEndArray();
+
+        // Constrain the reply to JSON matching the schema instead of asking for it in prose
+        if (responseSchema != null) {
+            json.writeObjectFieldStart("generationConfig");
+            json.writeStringField("responseMimeType", "application/json");
+            json.writeFieldName("responseSchema");
+            json.writeObject(responseSchema);
+            json.writeEndObject();
+        }
+
+        json.writeEndObject();
+        json.close();
+        out.flush();
+    }
+
+    private static final class CharSequencesReader extends Reader {
+
+        private final List<CharSequence> parts;
+        private int part;
+        private int position;
+
+        CharSequencesReader(List<CharSequence> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            while (part < parts.size() && position >= parts.get(part).length()) {
+                part++;
+                position = 0;
+            }
+            if (part >= parts.size()) {
+                return -1;
+            }
+
+            CharSequence current = parts.get(part);
+            int count = Math.min(length, current.length() - position);
+            if (current instanceof String string) {
+                string.getChars(position, position + count, buffer, offset);
+            } else if (current instanceof StringBuilder builder) {
+                builder.getChars(position, position + count, buffer, offset);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = current.charAt(position + i);
+                }
+            }
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+// src/main/java/com/contractanalysis/service/ModelRouter.java
+package com.contractanalysis.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ModelRouter {
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final int MIN_SAMPLES = 5;
+
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final Map<String, ModelHealth> health = new ConcurrentHashMap<>();
+
+    @Value("${ai.model.name}")
+    private String defaultModel;
+
+    @Value("${ai.routing.large-document-chars:200000}")
+    private int largeDocumentChars;
+
+    @Value("${ai.routing.latency-threshold-ms:60000}")
+    private long latencyThresholdMs;
+
+    @Value("${ai.routing.error-rate-threshold:0.5}")
+    private double errorRateThreshold;
+
+    @Value("${ai.routing.cooldown-seconds:120}")
+    private long cooldownSeconds;
+
+    public enum CallType {
+        TYPE_DETECTION("type-detection"),
+        FREE_ANALYSIS("free"),
+        PREMIUM_ANALYSIS("premium");
+
+        private final String key;
+
+        CallType(String key) {
+            this.key = key;
+        }
+
+        public static CallType forTier(String tier) {
+            return "premium".equals(tier) ? PREMIUM_ANALYSIS : FREE_ANALYSIS;
+        }
+    }
+
+    // Picks the configured model for the call type and document size, switching to the
+    // fallback while the chosen model is degraded
+    public String route(CallType callType, int textLength) {
+        String primary = environment.getProperty("ai.routing." + callType.key + ".primary", defaultModel);
+        String fallback = environment.getProperty("ai.routing." + callType.key + ".fallback", primary);
+        String large = environment.getProperty("ai.routing." + callType.key + ".large", primary);
+
+        String model = primary;
+        String reason = "primary";
+        // Only counted as a large-document route when a different model is configured for it
+        if (textLength > largeDocumentChars && !large.equals(primary)) {
+            model = large;
+            reason = "large_document";
+        }
+        if (!model.equals(fallback) && healthOf(model).isDegraded(Instant.now())) {
+            model = fallback;
+            reason = "fallback";
+        }
+
+        meterRegistry.counter("ai.model.route",
+                "callType", callType.key, "model", model, "reason", reason).increment();
+        return model;
+    }
+
+    public void recordCall(String model, Duration latency, boolean success) {
+        meterRegistry.timer("ai.model.call", "model", model, "outcome", success ? "success" : "error")
+                .record(latency);
+
+        if (healthOf(model).record(latency.toMillis(), success, Instant.now())) {
+            log.warn("Model {} degraded, routing to fallback for {}s", model, cooldownSeconds);
+            meterRegistry.counter("ai.model.degraded", "model", model).increment();
+        }
+    }
+
+    private ModelHealth healthOf(String model) {
+        return health.computeIfAbsent(model, key -> new ModelHealth());
+    }
+
+    // Exponentially weighted latency and error rate; once either crosses its threshold the
+    // model is skipped for the cooldown, after which it starts over with fresh statistics
+    private class ModelHealth {
+        private double latencyMs;
+        private double errorRate;
+        private int samples;
+        private Instant degradedUntil;
+
+        synchronized boolean isDegraded(Instant now) {
+            if (degradedUntil == null) {
+                return false;
+            }
+            if (now.isBefore(degradedUntil)) {
+                return true;
+            }
+            degradedUntil = null;
+            latencyMs = 0;
+            errorRate = 0;
+            samples = 0;
+            return false;
+        }
+
+        // Returns true when this sample made the model degraded
+        synchronized boolean record(long callLatencyMs, boolean success, Instant now) {
+            double error = success ? 0 : 1;
+            if (samples == 0) {
+                latencyMs = callLatencyMs;
+                errorRate = error;
+            } else {
+                latencyMs += EWMA_WEIGHT * (callLatencyMs - latencyMs);
+                errorRate += EWMA_WEIGHT * (error - errorRate);
+            }
+            samples++;
+
+            if (degradedUntil == null && samples >= MIN_SAMPLES
+                    && (latencyMs > latencyThresholdMs || errorRate > errorRateThreshold)) {
+                degradedUntil = now.plusSeconds(cooldownSeconds);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+// src/main/java/com/contractanalysis/service/PromptTemplate.java
+package com.contractanalysis.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Prompt text pre-split at its %s placeholders. Rendering returns the literal segments
+// and the arguments as a list of parts, so a large contract text is never copied into
+// one prompt string; GeminiRequestWriter streams the parts into the request body.
+public final class PromptTemplate {
+
+    private static final String PLACEHOLDER = "%s";
+
+    private final List<String> segments;
+
+    private PromptTemplate(List<String> segments) {
+        this.segments = segments;
+    }
+
+    public static PromptTemplate compile(String template) {
+        List<String> segments = new ArrayList<>();
+        int from = 0;
+        int at;
+        while ((at = template.indexOf(PLACEHOLDER, from)) >= 0) {
+            segments.add(template.substring(from, at));
+            from = at + PLACEHOLDER.length();
+        }
+        segments.add(template.substring(from));
+        return new PromptTemplate(List.copyOf(segments));
+    }
+
+    public List<CharSequence> render(CharSequence... args) {
+        if (args.length != segments.size() - 1) {
+            throw new IllegalArgumentException(
+                    "Template expects " + (segments.size() - 1) + " arguments, got " + args.length);
+        }
+
+        List<CharSequence> parts = new ArrayList<>(segments.size() + args.length);
+        for (int i = 0; i < args.length; i++) {
+            parts.add(segments.get(i));
+            parts.add(args[i]);
+        }
+        parts.add(segments.get(segments.size() - 1));
+        return parts;
+    }
+}
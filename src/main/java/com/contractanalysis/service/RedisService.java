@@ -3,16 +3,27 @@ package com.contractanalysis.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class RedisService {
 
+    private static final RedisScript<Long> RENEW_LEASE = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_LEASE = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
 
     public void set(String key, Object value) {
         redisTemplate.opsForValue().set(key, value);
@@ -29,4 +40,19 @@ public class RedisService {
     public void delete(String key) {
         redisTemplate.delete(key);
     }
+
+    // Leases are plain strings so the Lua scripts can compare the owner token directly
+    public boolean tryAcquireLease(String key, String owner, Duration timeout) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, owner, timeout));
+    }
+
+    public boolean renewLease(String key, String owner, Duration timeout) {
+        Long updated = stringRedisTemplate.execute(RENEW_LEASE, List.of(key), owner, String.valueOf(timeout.toMillis()));
+        return updated != null && updated == 1;
+    }
+
+    public boolean releaseLease(String key, String owner) {
+        Long deleted = stringRedisTemplate.execute(RELEASE_LEASE, List.of(key), owner);
+        return deleted != null && deleted == 1;
+    }
 }
\ No newline at end of file
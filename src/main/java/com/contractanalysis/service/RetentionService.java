@@ -0,0 +1,304 @@
+// src/main/java/com/contractanalysis/service/RetentionService.java
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.ArchivedContractAnalysis;
+import com.contractanalysis.model.ContractAnalysis;
+import com.contractanalysis.repository.ArchivedContractRepository;
+import com.contractanalysis.repository.ContractRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RetentionService {
+
+    private static final String ARCHIVE_LEASE_KEY = "retention:archive:lease";
+    // Renewed before every batch, so only a stalled node loses it
+    private static final Duration ARCHIVE_LEASE = Duration.ofMinutes(10);
+
+    private final MongoTemplate mongoTemplate;
+    private final ContractRepository contractRepository;
+    private final ArchivedContractRepository archivedContractRepository;
+    private final DashboardStatsService dashboardStatsService;
+    private final RedisService redisService;
+    private final ObjectMapper objectMapper;
+
+    // 0 keeps analyses of that tier forever
+    @Value("${retention.free-days:365}")
+    private int freeRetentionDays;
+
+    @Value("${retention.premium-days:0}")
+    private int premiumRetentionDays;
+
+    @Value("${retention.archive-after-days:90}")
+    private int archiveAfterDays;
+
+    @Value("${retention.archive-batch-size:500}")
+    private int archiveBatchSize;
+
+    public Date expirationFor(String tier, LocalDateTime createdAt) {
+        int days = "premium".equals(tier) ? premiumRetentionDays : freeRetentionDays;
+        if (days <= 0) {
+            return null;
+        }
+        return Date.from(createdAt.plusDays(days).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    // Looks in the hot collection first and transparently falls back to the archive
+    public Optional<ContractAnalysis> findForUser(String id, String userId) {
+        Optional<ContractAnalysis> hot = contractRepository.findByIdAndUserId(id, userId);
+        if (hot.isPresent()) {
+            return hot;
+        }
+        return archivedContractRepository.findByIdAndUserId(id, userId).map(this::rehydrate);
+    }
+
+    // Hot analyses in full plus the listing fields of archived ones (their documents stay
+    // compressed until opened), newest first
+    public List<ContractAnalysis> findAllForUser(String userId) {
+        Map<String, ContractAnalysis> analyses = new LinkedHashMap<>();
+        contractRepository.findByUserIdOrderByCreatedAtDesc(userId)
+                .forEach(analysis -> analyses.put(analysis.getId(), analysis));
+        // An analysis caught between the archive write and the hot delete is listed once
+        archivedContractRepository.findSummariesByUserId(userId)
+                .forEach(archived -> analyses.putIfAbsent(archived.getId(), toListing(archived)));
+
+        List<ContractAnalysis> all = new ArrayList<>(analyses.values());
+        all.sort(Comparator.comparing(ContractAnalysis::getCreatedAt,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return all;
+    }
+
+    // Only id and modification counter from both collections, for the list ETag
+    public List<ContractAnalysis> findVersionsForUser(String userId) {
+        List<ContractAnalysis> versions = new ArrayList<>(contractRepository.findModificationCountsByUserId(userId));
+        archivedContractRepository.findModificationCountsByUserId(userId).forEach(archived -> versions.add(
+                ContractAnalysis.builder().id(archived.getId()).modificationCount(archived.getModificationCount()).build()));
+        return versions;
+    }
+
+    // Saves a modified analysis. Only hot analyses are updated in place, so an archived one
+    // moves back to contract_analysis. Throws OptimisticLockingFailureException when the
+    // analysis changed (or was archived or restored) since it was loaded.
+    public ContractAnalysis save(ContractAnalysis analysis) {
+        if (contractRepository.existsById(analysis.getId())) {
+            return contractRepository.save(analysis);
+        }
+        if (!archivedContractRepository.existsById(analysis.getId())) {
+            throw new OptimisticLockingFailureException("Analysis " + analysis.getId() + " no longer exists");
+        }
+
+        // Written as a raw document: saving the entity would insert it with its version
+        // reset to 0, and the ETag would go back to a value clients may have cached
+        long modificationCount = analysis.getModificationCount() == null ? 1 : analysis.getModificationCount() + 1;
+        Document document = new Document();
+        mongoTemplate.getConverter().write(analysis, document);
+        document.put("modificationCount", modificationCount);
+        try {
+            mongoTemplate.insert(document, mongoTemplate.getCollectionName(ContractAnalysis.class));
+        } catch (DuplicateKeyException e) {
+            throw new OptimisticLockingFailureException("Analysis " + analysis.getId() + " was restored concurrently", e);
+        }
+        archivedContractRepository.deleteById(analysis.getId());
+        analysis.setModificationCount(modificationCount);
+        log.info("Restored archived analysis {}", analysis.getId());
+        return analysis;
+    }
+
+    // Returns whether the analysis existed in either collection
+    public boolean delete(String id) {
+        Query byId = Query.query(Criteria.where("_id").is(id));
+        long deleted = mongoTemplate.remove(byId, ContractAnalysis.class).getDeletedCount()
+                + mongoTemplate.remove(byId, ArchivedContractAnalysis.class).getDeletedCount();
+        return deleted > 0;
+    }
+
+    // Deletes analyses past their expiration date from both collections and takes them off
+    // the dashboard counters; the TTL indexes only catch what this missed
+    @Scheduled(fixedDelayString = "${retention.expiry-interval-ms:600000}")
+    public void expireAnalyses() {
+        Query expired = Query.query(Criteria.where("expirationDate").lte(new Date())).limit(archiveBatchSize);
+        expired.fields().exclude("contractText");
+
+        long deleted = 0;
+        try {
+            List<ContractAnalysis> batch;
+            do {
+                batch = mongoTemplate.find(expired, ContractAnalysis.class);
+                for (ContractAnalysis analysis : batch) {
+                    if (dashboardStatsService.recordDeleted(analysis, () -> delete(analysis.getId()))) {
+                        deleted++;
+                    }
+                }
+            } while (batch.size() == archiveBatchSize);
+
+            List<ArchivedContractAnalysis> archivedBatch;
+            Query expiredArchive = Query.query(Criteria.where("expirationDate").lte(new Date())).limit(archiveBatchSize);
+            do {
+                archivedBatch = mongoTemplate.find(expiredArchive, ArchivedContractAnalysis.class);
+                for (ArchivedContractAnalysis archived : archivedBatch) {
+                    if (dashboardStatsService.recordDeleted(rehydrate(archived), () -> delete(archived.getId()))) {
+                        deleted++;
+                    }
+                }
+            } while (archivedBatch.size() == archiveBatchSize);
+        } catch (Exception e) {
+            log.error("Error expiring analyses", e);
+        }
+
+        if (deleted > 0) {
+            log.info("Expired {} analyses", deleted);
+        }
+    }
+
+    // Moves completed analyses older than archive-after-days into the compressed cold collection.
+    // Every node fires the cron; the lease lets one of them do the work.
+    @Scheduled(cron = "${retention.archive-cron:0 0 3 * * *}")
+    public void archiveOldAnalyses() {
+        String owner = UUID.randomUUID().toString();
+        if (!redisService.tryAcquireLease(ARCHIVE_LEASE_KEY, owner, ARCHIVE_LEASE)) {
+            log.info("Archiving already running on another node");
+            return;
+        }
+        try {
+            archiveBatches(owner);
+        } finally {
+            redisService.releaseLease(ARCHIVE_LEASE_KEY, owner);
+        }
+    }
+
+    private void archiveBatches(String owner) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        Query query = Query.query(Criteria.where("createdAt").lt(cutoff).and("summary").nin(null, ""))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(archiveBatchSize);
+
+        long archived = 0;
+        List<ContractAnalysis> batch;
+        do {
+            // A lease lost to expiry means another node may be archiving the same batch
+            if (!redisService.renewLease(ARCHIVE_LEASE_KEY, owner, ARCHIVE_LEASE)) {
+                log.warn("Lost the archive lease after archiving {} analyses, stopping", archived);
+                return;
+            }
+            batch = mongoTemplate.find(query, ContractAnalysis.class);
+            for (ContractAnalysis analysis : batch) {
+                try {
+                    // Save first: a crash in between leaves a hot copy, which findForUser prefers
+                    archivedContractRepository.save(archive(analysis));
+                    // Versioned delete: an analysis saved since it was read stays hot
+                    contractRepository.delete(analysis);
+                    archived++;
+                } catch (OptimisticLockingFailureException e) {
+                    // Gone from the hot collection means someone else archived it, and the
+                    // archive copy is now the only one
+                    if (contractRepository.existsById(analysis.getId())) {
+                        archivedContractRepository.deleteById(analysis.getId());
+                        log.info("Analysis {} changed while archiving, keeping it hot", analysis.getId());
+                    }
+                } catch (Exception e) {
+                    log.error("Error archiving analysis {}", analysis.getId(), e);
+                    return;
+                }
+            }
+        } while (batch.size() == archiveBatchSize);
+
+        log.info("Archived {} analyses created before {}", archived, cutoff);
+        logCollectionStats("contract_analysis");
+        logCollectionStats("contract_analysis_archive");
+    }
+
+    private ArchivedContractAnalysis archive(ContractAnalysis analysis) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, analysis);
+        }
+
+        List<String> riskSeverities = new ArrayList<>();
+        if (analysis.getRisks() != null) {
+            analysis.getRisks().forEach(risk -> riskSeverities.add(risk.getSeverity()));
+        }
+
+        return ArchivedContractAnalysis.builder()
+                .id(analysis.getId())
+                .userId(analysis.getUserId())
+                .createdAt(analysis.getCreatedAt())
+                .summary(analysis.getSummary())
+                .contractType(analysis.getContractType())
+                .overallScore(analysis.getOverallScore())
+                .riskSeverities(riskSeverities)
+                .analysisFailed(analysis.getAnalysisFailed())
+                .version(analysis.getVersion())
+                .modificationCount(analysis.getModificationCount())
+                .expirationDate(analysis.getExpirationDate())
+                .archivedAt(Instant.now())
+                .payload(bytes.toByteArray())
+                .build();
+    }
+
+    private ContractAnalysis toListing(ArchivedContractAnalysis archived) {
+        return ContractAnalysis.builder()
+                .id(archived.getId())
+                .userId(archived.getUserId())
+                .createdAt(archived.getCreatedAt())
+                .summary(archived.getSummary())
+                .analysisFailed(archived.getAnalysisFailed())
+                .contractType(archived.getContractType())
+                .overallScore(archived.getOverallScore())
+                .version(archived.getVersion())
+                .modificationCount(archived.getModificationCount())
+                .expirationDate(archived.getExpirationDate())
+                .build();
+    }
+
+    public ContractAnalysis rehydrate(ArchivedContractAnalysis archived) {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(archived.getPayload()))) {
+            return objectMapper.readValue(gzip, ContractAnalysis.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt archived analysis " + archived.getId(), e);
+        }
+    }
+
+    private void logCollectionStats(String collection) {
+        try {
+            Document stats = mongoTemplate.executeCommand(new Document("collStats", collection));
+            log.info("Collection {}: {} documents, data size {} bytes, storage size {} bytes, index size {} bytes",
+                    collection, stats.get("count"), stats.get("size"), stats.get("storageSize"),
+                    stats.get("totalIndexSize"));
+        } catch (Exception e) {
+            log.warn("Could not read stats for collection {}", collection, e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// src/main/java/com/contractanalysis/service/UploadSpoolService.java
+package com.contractanalysis.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Service
+@Slf4j
+public class UploadSpoolService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path spoolDir;
+    private final DataSize freeMaxSize;
+    private final DataSize premiumMaxSize;
+
+    public UploadSpoolService(
+            @Value("${upload.spool.dir:${java.io.tmpdir}/contract-uploads}") String spoolDir,
+            @Value("${upload.max-size.free:5MB}") DataSize freeMaxSize,
+            @Value("${upload.max-size.premium:30MB}") DataSize premiumMaxSize) throws IOException {
+        this.spoolDir = Files.createDirectories(Paths.get(spoolDir));
+        this.freeMaxSize = freeMaxSize;
+        this.premiumMaxSize = premiumMaxSize;
+    }
+
+    public long maxUploadBytes(String tier) {
+        return "premium".equals(tier) ? premiumMaxSize.toBytes() : freeMaxSize.toBytes();
+    }
+
+    // Moves the container's part file into the spool directory and hashes it in one read
+    // pass. Multipart parts are written under the spool directory too, so the move is a
+    // rename rather than a second copy of the bytes. The caller checks the tier size limit.
+    public SpooledUpload spool(MultipartFile file) throws IOException {
+        Path path = Files.createTempFile(spoolDir, "upload-", ".bin");
+        try {
+            // transferTo(File) hands the path to Part.write; transferTo(Path) would copy the stream
+            file.transferTo(path.toFile());
+            long size = Files.size(path);
+            String contentHash = hash(path);
+            log.info("Spooled upload of {} bytes to {} (sha256 {})", size, path.getFileName(), contentHash);
+            return new SpooledUpload(path, size, contentHash);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    private static String hash(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record SpooledUpload(Path path, long size, String contentHash) implements AutoCloseable {
+
+        public FileChannel openChannel() throws IOException {
+            return FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+}
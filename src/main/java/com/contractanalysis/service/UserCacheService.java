@@ -0,0 +1,57 @@
+// src/main/java/com/contractanalysis/service/UserCacheService.java
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.User;
+import com.contractanalysis.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserCacheService {
+
+    private static final String USER_KEY_PREFIX = "user:";
+    private static final Duration USER_TTL = Duration.ofMinutes(30);
+
+    private final UserRepository userRepository;
+    private final RedisService redisService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public Optional<User> getUser(String userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+
+        Optional<Object> cached = redisService.get(USER_KEY_PREFIX + userId);
+        if (cached.isPresent() && cached.get() instanceof String json) {
+            try {
+                return Optional.of(objectMapper.readValue(json, User.class));
+            } catch (Exception e) {
+                log.warn("Discarding unreadable cached user {}", userId, e);
+                evict(userId);
+            }
+        }
+
+        Optional<User> user = userRepository.findById(userId);
+        user.ifPresent(this::put);
+        return user;
+    }
+
+    public void put(User user) {
+        try {
+            redisService.set(USER_KEY_PREFIX + user.getId(), objectMapper.writeValueAsString(user), USER_TTL);
+        } catch (Exception e) {
+            log.warn("Error caching user {}", user.getId(), e);
+        }
+    }
+
+    public void evict(String userId) {
+        redisService.delete(USER_KEY_PREFIX + userId);
+    }
+}
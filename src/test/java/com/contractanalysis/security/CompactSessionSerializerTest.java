@@ -0,0 +1,87 @@
+package com.contractanalysis.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactSessionSerializerTest {
+
+	private final CompactSessionSerializer serializer = new CompactSessionSerializer();
+
+	@Test
+	void securityContextRoundTripsAndIsSmallerThanJdkSerialization() {
+		UserPrincipal principal = new UserPrincipal("6650f1c2a9e3b54d1c0e7f21", "jane.doe@example.com", true);
+		SecurityContext context = new SecurityContextImpl(
+				new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+
+		byte[] compact = serializer.serialize(context);
+		byte[] jdk = new JdkSerializationRedisSerializer().serialize(context);
+
+		Object restored = serializer.deserialize(compact);
+		assertThat(restored).isInstanceOf(SecurityContext.class);
+		OAuth2AuthenticationToken token = (OAuth2AuthenticationToken) ((SecurityContext) restored).getAuthentication();
+		UserPrincipal restoredPrincipal = (UserPrincipal) token.getPrincipal();
+
+		assertThat(token.getAuthorizedClientRegistrationId()).isEqualTo("google");
+		assertThat(restoredPrincipal.getUserId()).isEqualTo(principal.getUserId());
+		assertThat(restoredPrincipal.getEmail()).isEqualTo(principal.getEmail());
+		assertThat(restoredPrincipal.isPremium()).isTrue();
+		assertThat(token.getAuthorities()).extracting("authority").containsExactly("ROLE_USER", "ROLE_PREMIUM");
+		assertThat(compact.length).isLessThan(jdk.length / 10);
+	}
+
+	@Test
+	void securityContextWithoutEmailRoundTrips() {
+		UserPrincipal principal = new UserPrincipal("u1", null, false);
+		SecurityContext context = new SecurityContextImpl(
+				new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+
+		SecurityContext restored = (SecurityContext) serializer.deserialize(serializer.serialize(context));
+		UserPrincipal restoredPrincipal = (UserPrincipal) restored.getAuthentication().getPrincipal();
+
+		assertThat(restoredPrincipal.getEmail()).isNull();
+		assertThat(restoredPrincipal.isPremium()).isFalse();
+	}
+
+	@Test
+	void sessionBookkeepingValuesRoundTrip() {
+		byte[] lastAccessed = serializer.serialize(1_760_000_000_000L);
+		byte[] maxInactive = serializer.serialize(1800);
+
+		assertThat(serializer.deserialize(lastAccessed)).isEqualTo(1_760_000_000_000L);
+		assertThat(serializer.deserialize(maxInactive)).isEqualTo(1800);
+		assertThat(lastAccessed).hasSize(9);
+		assertThat(maxInactive).hasSize(5);
+		assertThat(serializer.deserialize(serializer.serialize("pending-upload"))).isEqualTo("pending-upload");
+		assertThat(serializer.deserialize(serializer.serialize("grüße"))).isEqualTo("grüße");
+	}
+
+	@Test
+	void otherValuesFallBackToJdkSerialization() {
+		Duration value = Duration.ofMinutes(5);
+
+		assertThat(serializer.deserialize(serializer.serialize(value))).isEqualTo(value);
+	}
+
+	@Test
+	void nullAndEmptyAreSymmetric() {
+		assertThat(serializer.serialize(null)).isEmpty();
+		assertThat(serializer.deserialize(new byte[0])).isNull();
+		assertThat(serializer.deserialize(null)).isNull();
+	}
+
+	@Test
+	void unknownTagIsRejected() {
+		assertThatThrownBy(() -> serializer.deserialize(new byte[] {42, 0, 0}))
+				.isInstanceOf(SerializationException.class)
+				.hasMessageContaining("42");
+	}
+}
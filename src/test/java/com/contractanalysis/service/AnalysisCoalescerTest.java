@@ -0,0 +1,57 @@
+package com.contractanalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisCoalescerTest {
+
+	private final AnalysisCoalescer coalescer = new AnalysisCoalescer(null, null);
+
+	@Test
+	void textKeyMatchesHashOfTheWholeUtf8Encoding() throws Exception {
+		// Multi-byte characters and an unpaired surrogate straddling the 8 KB chunk boundaries
+		String text = "Zahlung binnen 30 Tagen – 😀 ".repeat(1000) + "\uD800 tail";
+
+		String key = coalescer.flightKey(null, text, "Sales", "free", "gemini-1.5-flash");
+
+		assertThat(key).isEqualTo(expectedKey("Sales", text.getBytes(StandardCharsets.UTF_8)) + ":free:gemini-1.5-flash");
+	}
+
+	@Test
+	void emptyTextIsHashed() throws Exception {
+		assertThat(coalescer.flightKey(null, "", "Sales", "free", "m"))
+				.isEqualTo(expectedKey("Sales", new byte[0]) + ":free:m");
+	}
+
+	@Test
+	void uploadsAreKeyedByFileHashNotText() {
+		String first = coalescer.flightKey("abc123", "extracted text", "Sales", "premium", "m");
+		String sameFile = coalescer.flightKey("abc123", "different extraction", "Sales", "premium", "m");
+		String pasted = coalescer.flightKey(null, "extracted text", "Sales", "premium", "m");
+
+		assertThat(sameFile).isEqualTo(first);
+		assertThat(pasted).isNotEqualTo(first);
+	}
+
+	@Test
+	void contractTypeTierAndModelSeparateFlights() {
+		String key = coalescer.flightKey(null, "text", "Sales", "free", "m");
+
+		assertThat(coalescer.flightKey(null, "text", "Lease", "free", "m")).isNotEqualTo(key);
+		assertThat(coalescer.flightKey(null, "text", "Sales", "premium", "m")).isNotEqualTo(key);
+		assertThat(coalescer.flightKey(null, "text", "Sales", "free", "other")).isNotEqualTo(key);
+	}
+
+	private String expectedKey(String contractType, byte[] text) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		digest.update(contractType.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(text);
+		return HexFormat.of().formatHex(digest.digest());
+	}
+}
@@ -0,0 +1,211 @@
+package com.contractanalysis.service;
+
+import com.contractanalysis.model.ContractAnalysis;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContractRevisionServiceTest {
+
+	private static final String ORIGINAL = """
+			1. The Supplier shall deliver the goods within 30 days.
+			2. Payment is due within 45 days of invoice.
+			3. This agreement is governed by the laws of New York.
+			4. Either party may terminate with 60 days written notice.
+			""";
+
+	private ContractRevisionService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new ContractRevisionService();
+		ReflectionTestUtils.setField(service, "maxChangedRatio", 0.5);
+	}
+
+	@Test
+	void identicalTextHasNoChanges() {
+		ContractRevisionService.ClauseDiff diff = service.diff(ORIGINAL, ORIGINAL);
+
+		assertThat(diff.isEmpty()).isTrue();
+		assertThat(diff.changedRatio()).isZero();
+	}
+
+	@Test
+	void whitespaceOnlyEditsAreNotChanges() {
+		String reformatted = ORIGINAL.replace("within 30 days", "within   30\n   days");
+
+		assertThat(service.diff(ORIGINAL, reformatted).isEmpty()).isTrue();
+	}
+
+	@Test
+	void editedClauseIsReportedAsChanged() {
+		String revised = ORIGINAL.replace("45 days", "15 days");
+
+		ContractRevisionService.ClauseDiff diff = service.diff(ORIGINAL, revised);
+
+		assertThat(diff.changedClauses()).containsExactly("2. Payment is due within 15 days of invoice.");
+		assertThat(diff.removedClauses()).containsExactly("2. Payment is due within 45 days of invoice.");
+		assertThat(diff.changedRatio()).isEqualTo(0.5);
+	}
+
+	@Test
+	void removedClausesCountTowardsTheChangedRatio() {
+		String gutted = "1. The Supplier shall deliver the goods within 30 days.\n";
+
+		ContractRevisionService.ClauseDiff diff = service.diff(ORIGINAL, gutted);
+
+		assertThat(diff.changedClauses()).isEmpty();
+		assertThat(diff.removedClauses()).hasSize(3);
+		assertThat(diff.changedRatio()).isEqualTo(0.75);
+		assertThat(service.canAnalyzeIncrementally(completed("free"), diff, "free")).isFalse();
+	}
+
+	@Test
+	void addedClausesCountAgainstTheLargerVersion() {
+		String extended = ORIGINAL + "5. Disputes go to arbitration.\n";
+
+		ContractRevisionService.ClauseDiff diff = service.diff(ORIGINAL, extended);
+
+		assertThat(diff.changedClauses()).containsExactly("5. Disputes go to arbitration.");
+		assertThat(diff.changedRatio()).isEqualTo(0.2);
+	}
+
+	@Test
+	void emptyDocumentsAreNeverIncremental() {
+		assertThat(service.diff("", "").changedRatio()).isEqualTo(1.0);
+	}
+
+	@Test
+	void smallChangeToACompletedAnalysisOfTheSameTierIsIncremental() {
+		ContractRevisionService.ClauseDiff diff = service.diff(ORIGINAL, ORIGINAL.replace("45 days", "15 days"));
+
+		assertThat(service.canAnalyzeIncrementally(completed("premium"), diff, "premium")).isTrue();
+	}
+
+	@Test
+	void failedPreviousAnalysisIsNotIncremental() {
+		ContractAnalysis failed = completed("free");
+		failed.setSummary("Error analyzing contract. Please try again later.");
+		failed.setAnalysisFailed(true);
+
+		assertThat(service.canAnalyzeIncrementally(failed, service.diff(ORIGINAL, ORIGINAL), "free")).isFalse();
+	}
+
+	@Test
+	void unfinishedPreviousAnalysisIsNotIncremental() {
+		ContractAnalysis processing = completed("free");
+		processing.setSummary(null);
+
+		assertThat(service.canAnalyzeIncrementally(processing, service.diff(ORIGINAL, ORIGINAL), "free")).isFalse();
+	}
+
+	@Test
+	void tierChangeForcesAFullAnalysis() {
+		ContractRevisionService.ClauseDiff diff = service.diff(ORIGINAL, ORIGINAL);
+
+		assertThat(service.canAnalyzeIncrementally(completed("free"), diff, "premium")).isFalse();
+		assertThat(service.canAnalyzeIncrementally(completed(null), diff, "free")).isFalse();
+	}
+
+	@Test
+	void mergeDropsResolvedFindingsAndAppendsNewOnes() {
+		ContractAnalysis previous = completed("free");
+		Map<String, Object> delta = Map.of(
+				"risks", List.of(Map.of("risk", "Short payment term", "explanation", "15 days", "severity", "medium")),
+				"resolvedRisks", List.of(0),
+				"resolvedOpportunities", List.of(),
+				"summary", "Revised summary");
+
+		Map<String, Object> results = service.merge(previous, delta);
+
+		assertThat(results.get("risks")).asInstanceOf(InstanceOfAssertFactories.LIST)
+				.extracting("risk")
+				.containsExactly("Termination notice", "Short payment term");
+		assertThat(results.get("opportunities")).asInstanceOf(InstanceOfAssertFactories.LIST)
+				.extracting("opportunity")
+				.containsExactly("Volume discount");
+		assertThat(results.get("summary")).isEqualTo("Revised summary");
+		assertThat(results.get("overallScore")).isEqualTo(70);
+	}
+
+	@Test
+	void mergeIgnoresOutOfRangeAndNonNumericResolvedIndexes() {
+		Map<String, Object> delta = Map.of("resolvedRisks", List.of(5, -1, "0", 1.0));
+
+		Map<String, Object> results = service.merge(completed("free"), delta);
+
+		assertThat(results.get("risks")).asInstanceOf(InstanceOfAssertFactories.LIST)
+				.extracting("risk")
+				.containsExactly("Late delivery");
+	}
+
+	@Test
+	void mergeKeepsPremiumOnlyFieldsOfThePreviousAnalysis() {
+		ContractAnalysis previous = completed("premium");
+		previous.setKeyClauses(List.of("Termination"));
+		previous.setFinancialTerms(new ContractAnalysis.FinancialTerms("Net 45", List.of("Invoice monthly")));
+
+		Map<String, Object> results = service.merge(previous, Map.of());
+
+		assertThat(results.get("keyClauses")).isEqualTo(List.of("Termination"));
+		assertThat(results.get("financialTerms")).isEqualTo(
+				Map.of("description", "Net 45", "details", List.of("Invoice monthly")));
+		assertThat(results.get("aiModel")).isEqualTo("gemini-1.5-flash");
+	}
+
+	@Test
+	void mergeReplacesPremiumFieldsReturnedByTheRevision() {
+		ContractAnalysis previous = completed("premium");
+		previous.setFinancialTerms(new ContractAnalysis.FinancialTerms("Net 45", List.of("Invoice monthly")));
+		previous.setContractDuration("2 years");
+		Map<String, Object> delta = Map.of(
+				"financialTerms", Map.of("description", "Net 15", "details", List.of("Invoice monthly")),
+				"keyClauses", List.of("Payment"),
+				"performanceMetrics", List.of("On-time delivery"),
+				"intellectualPropertyClauses", "None");
+
+		Map<String, Object> results = service.merge(previous, delta);
+
+		assertThat(results.get("financialTerms")).isEqualTo(
+				Map.of("description", "Net 15", "details", List.of("Invoice monthly")));
+		assertThat(results.get("keyClauses")).isEqualTo(List.of("Payment"));
+		assertThat(results.get("performanceMetrics")).isEqualTo(List.of("On-time delivery"));
+		assertThat(results.get("intellectualPropertyClauses")).isEqualTo("None");
+		assertThat(results.get("contractDuration")).isEqualTo("2 years");
+	}
+
+	@Test
+	void premiumDetailsHoldOnlyThePreviousPremiumFields() {
+		ContractAnalysis previous = completed("premium");
+		previous.setFinancialTerms(new ContractAnalysis.FinancialTerms("Net 45", List.of("Invoice monthly")));
+		previous.setKeyClauses(List.of("Termination"));
+
+		Map<String, Object> details = service.premiumDetails(previous);
+
+		assertThat(details).containsOnlyKeys("keyClauses", "financialTerms");
+		assertThat(details.get("financialTerms")).isEqualTo(
+				Map.of("description", "Net 45", "details", List.of("Invoice monthly")));
+	}
+
+	private ContractAnalysis completed(String tier) {
+		return ContractAnalysis.builder()
+				.id("a1")
+				.contractText(ORIGINAL)
+				.summary("Supply agreement")
+				.overallScore(70)
+				.tier(tier)
+				.aiModel("gemini-1.5-flash")
+				.risks(List.of(
+						new ContractAnalysis.Risk("Late delivery", "30 days is long", "low"),
+						new ContractAnalysis.Risk("Termination notice", "60 days", "medium")))
+				.opportunities(List.of(
+						new ContractAnalysis.Opportunity("Volume discount", "Not addressed", "medium")))
+				.build();
+	}
+}
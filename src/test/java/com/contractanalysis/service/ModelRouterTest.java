@@ -0,0 +1,54 @@
+package com.contractanalysis.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelRouterTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private ModelRouter router;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("ai.routing.free.primary", "flash")
+				.withProperty("ai.routing.free.large", "pro")
+				.withProperty("ai.routing.premium.primary", "pro");
+		router = new ModelRouter(meterRegistry, environment);
+		ReflectionTestUtils.setField(router, "defaultModel", "pro");
+		ReflectionTestUtils.setField(router, "largeDocumentChars", 1000);
+	}
+
+	@Test
+	void largeDocumentsGoToTheConfiguredLargeModel() {
+		assertThat(router.route(ModelRouter.CallType.FREE_ANALYSIS, 1001)).isEqualTo("pro");
+		assertThat(routes("free", "pro", "large_document")).isEqualTo(1.0);
+	}
+
+	@Test
+	void largeDocumentWithoutALargeModelIsAPrimaryRoute() {
+		assertThat(router.route(ModelRouter.CallType.PREMIUM_ANALYSIS, 1001)).isEqualTo("pro");
+		assertThat(routes("premium", "pro", "primary")).isEqualTo(1.0);
+		assertThat(routes("premium", "pro", "large_document")).isZero();
+	}
+
+	@Test
+	void smallDocumentsUseThePrimaryModel() {
+		assertThat(router.route(ModelRouter.CallType.FREE_ANALYSIS, 1000)).isEqualTo("flash");
+		assertThat(routes("free", "flash", "primary")).isEqualTo(1.0);
+	}
+
+	private double routes(String callType, String model, String reason) {
+		Counter counter = meterRegistry.find("ai.model.route")
+				.tags("callType", callType, "model", model, "reason", reason)
+				.counter();
+		return counter == null ? 0 : counter.count();
+	}
+}